@@ -0,0 +1,13 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.autocomplete")
+public class AnimeAutocompleteProperties {
+    // off, or until the first load finishes, /animes/autocomplete runs a prefix search on the database
+    private boolean enabled = false;
+    // changes kept beside the sorted array before they are merged into a new one
+    private int maxDeltaSize = 10_000;
+}
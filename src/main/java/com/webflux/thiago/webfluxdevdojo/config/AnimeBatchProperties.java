@@ -0,0 +1,22 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import com.webflux.thiago.webfluxdevdojo.repository.AnimeBatchRepository;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "devdojo.batch")
+public class AnimeBatchProperties {
+    // rows per INSERT statement, capped by the bind parameters postgres allows per statement
+    @Min(1)
+    @Max(AnimeBatchRepository.MAX_ROWS)
+    private int chunkSize = 500;
+    // chunks of a streamed ingestion written at the same time, each one holds a pooled connection
+    @Min(1)
+    private int concurrency = 4;
+}
@@ -0,0 +1,15 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.cache.animes")
+public class AnimeCacheProperties {
+    private boolean enabled = true;
+    private long maximumSize = 10_000;
+    private Duration timeToLive = Duration.ofMinutes(10);
+    private Duration notFoundTimeToLive = Duration.ofSeconds(5);
+}
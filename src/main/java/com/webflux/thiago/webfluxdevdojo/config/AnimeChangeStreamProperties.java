@@ -0,0 +1,21 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import reactor.core.publisher.BufferOverflowStrategy;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.changes")
+public class AnimeChangeStreamProperties {
+    // last events kept in memory, a client can resume with Last-Event-ID as long as its id is among them
+    private int retainedEvents = 1000;
+    // events queued for one slow subscriber before the overflow strategy applies
+    private int subscriberBufferSize = 256;
+    // ERROR ends the slow subscriber's stream, its EventSource reconnects and resumes from the window;
+    // DROP_OLDEST / DROP_LATEST keep it connected but it silently misses events
+    private BufferOverflowStrategy overflowStrategy = BufferOverflowStrategy.ERROR;
+    // SSE comment sent on idle streams so proxies do not close them
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+}
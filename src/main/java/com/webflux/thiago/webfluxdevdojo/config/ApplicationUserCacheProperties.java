@@ -0,0 +1,13 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.cache.users")
+public class ApplicationUserCacheProperties {
+    private long maximumSize = 10_000;
+    private Duration timeToLive = Duration.ofMinutes(5);
+}
@@ -0,0 +1,28 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.blockhound")
+public class BlockHoundProperties {
+    private Mode mode = Mode.OFF;
+    // "fully.qualified.Class#method" entries
+    private List<String> allowBlockingCallsInside = new ArrayList<>();
+    private int stackDepth = 12;
+    private int maxSignatures = 500;
+    private Duration reportInterval = Duration.ofSeconds(30);
+
+    public enum Mode {
+        // BlockHound is not installed at all
+        OFF,
+        // blocking calls are recorded and reported, the caller carries on
+        LOG,
+        // blocking calls are recorded and fail with BlockingOperationError
+        FAIL
+    }
+}
@@ -0,0 +1,27 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import com.webflux.thiago.webfluxdevdojo.service.ApplicationUserCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class CachingReactiveAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private final ReactiveAuthenticationManager delegate;
+    private final ApplicationUserCache applicationUserCache;
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        if (authentication.getCredentials() == null) {
+            return delegate.authenticate(authentication);
+        }
+        String username = authentication.getName();
+        String password = authentication.getCredentials().toString();
+        return Mono.justOrEmpty(applicationUserCache.findAuthentication(username, password))
+                .switchIfEmpty(Mono.defer(() -> delegate.authenticate(authentication)
+                        .doOnNext(authenticated ->
+                                applicationUserCache.putAuthentication(username, password, authenticated))));
+    }
+}
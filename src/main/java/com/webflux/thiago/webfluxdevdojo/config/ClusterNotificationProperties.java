@@ -0,0 +1,23 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.notifications")
+public class ClusterNotificationProperties {
+    // needs PostgreSQL; off means every instance only invalidates its own caches
+    private boolean enabled = false;
+    private String channel = "anime_changes";
+    // changes gathered for at most batchWindow (or batchSize changes) go out as one NOTIFY
+    private int batchSize = 500;
+    private Duration batchWindow = Duration.ofMillis(50);
+    // NOTIFY rejects payloads of 8000 bytes or more, a batch serializing to more is split
+    private int maxPayloadBytes = 7999;
+    // batches waiting while the database is slow; past it they collapse into one "everything changed"
+    private int maxPendingBatches = 16;
+    private Duration reconnectDelay = Duration.ofSeconds(1);
+    private Duration maxReconnectDelay = Duration.ofSeconds(30);
+}
@@ -0,0 +1,37 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Smile, Jackson's binary JSON, for internal callers that want to skip text parsing. It is
+ * negotiated through Accept/Content-Type next to JSON, the streaming variant next to ndjson.
+ */
+@Configuration(proxyBeanMethods = false)
+public class CodecConfig {
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+    public static final String APPLICATION_STREAM_SMILE_VALUE = "application/stream+x-jackson-smile";
+    public static final MediaType APPLICATION_STREAM_SMILE = MediaType.parseMediaType(APPLICATION_STREAM_SMILE_VALUE);
+
+    // WebFlux registers Smile on its own once jackson-dataformat-smile is present, but with a bare
+    // ObjectMapper; this one gets the same modules and spring.jackson.* settings as JSON. The mime
+    // types must be passed, without them the codecs would claim the JSON ones
+    @Bean
+    public CodecCustomizer smileCodecCustomizer(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        ObjectMapper smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smileMapper,
+                    APPLICATION_SMILE, APPLICATION_STREAM_SMILE));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper,
+                    APPLICATION_SMILE, APPLICATION_STREAM_SMILE));
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.monitoring.event-loop")
+public class EventLoopMonitorProperties {
+    // can also be switched at runtime through POST /actuator/eventloops
+    private boolean enabled = false;
+    private Duration probeInterval = Duration.ofMillis(200);
+    private Duration stallThreshold = Duration.ofMillis(500);
+    // at most one thread dump per loop in this interval
+    private Duration threadDumpInterval = Duration.ofMinutes(1);
+    // Schedulers.enableMetrics() must run before the schedulers are created, so this one needs a restart
+    private boolean schedulerMetrics = false;
+}
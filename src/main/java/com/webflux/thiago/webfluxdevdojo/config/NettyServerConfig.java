@@ -0,0 +1,53 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Socket and buffer options for the embedded Netty server. Compression and h2c are plain
+ * server.compression / server.http2 settings in application.yml.
+ */
+@Configuration(proxyBeanMethods = false)
+@Slf4j
+public class NettyServerConfig {
+    public static final String SERVER_LOOP_RESOURCES = "serverLoopResources";
+
+    // the R2DBC driver keeps the shared TcpResources loops, so a slow query callback cannot delay accepts
+    @Bean(name = SERVER_LOOP_RESOURCES, destroyMethod = "dispose")
+    @ConditionalOnExpression("${devdojo.netty.event-loop-threads:0} > 0")
+    public LoopResources serverLoopResources(NettyServerProperties properties) {
+        return LoopResources.create("http-server", properties.getEventLoopThreads(), true);
+    }
+
+    @Bean
+    public NettyServerCustomizer nettyServerCustomizer(NettyServerProperties properties,
+                                                       @Qualifier(SERVER_LOOP_RESOURCES) ObjectProvider<LoopResources> serverLoopResources) {
+        return httpServer -> customize(httpServer, properties, serverLoopResources.getIfAvailable());
+    }
+
+    public static HttpServer customize(HttpServer httpServer, NettyServerProperties properties, LoopResources loops) {
+        HttpServer customized = httpServer
+                .option(ChannelOption.SO_BACKLOG, properties.getBacklog())
+                .childOption(ChannelOption.SO_KEEPALIVE, properties.isKeepAlive())
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childOption(ChannelOption.ALLOCATOR, properties.isPooledDirectBuffers()
+                        ? PooledByteBufAllocator.DEFAULT
+                        : UnpooledByteBufAllocator.DEFAULT)
+                .http2Settings(settings -> settings.maxConcurrentStreams(properties.getHttp2MaxConcurrentStreams()));
+        if (loops != null) {
+            log.info("Netty server running on {} dedicated event loops", properties.getEventLoopThreads());
+            customized = customized.runOn(loops);
+        }
+        return customized;
+    }
+}
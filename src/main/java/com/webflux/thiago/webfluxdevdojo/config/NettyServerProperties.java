@@ -0,0 +1,17 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.netty")
+public class NettyServerProperties {
+    // 0 keeps the shared reactor-netty loops (one per core), anything else gives the server its own
+    private int eventLoopThreads = 0;
+    // pending connections the kernel queues while the accept loop is busy
+    private int backlog = 1024;
+    private boolean keepAlive = true;
+    private boolean pooledDirectBuffers = true;
+    // per HTTP/2 connection, streams above this are refused instead of queued
+    private long http2MaxConcurrentStreams = 256;
+}
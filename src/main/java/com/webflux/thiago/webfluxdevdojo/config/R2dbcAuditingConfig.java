@@ -0,0 +1,10 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.config.EnableR2dbcAuditing;
+
+// fills @LastModifiedDate fields on save
+@Configuration(proxyBeanMethods = false)
+@EnableR2dbcAuditing
+public class R2dbcAuditingConfig {
+}
@@ -0,0 +1,58 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import reactor.netty.resources.LoopResources;
+
+@Configuration(proxyBeanMethods = false)
+@Slf4j
+public class R2dbcPoolConfig {
+    private static final String POOL_NAME = "anime";
+
+    @Bean(destroyMethod = "dispose")
+    public TimedConnectionFactory connectionFactory(R2dbcProperties r2dbcProperties,
+                                                    R2dbcPoolProperties poolProperties,
+                                                    NettyServerProperties nettyServerProperties,
+                                                    MeterRegistry meterRegistry) {
+        int eventLoops = eventLoops(nettyServerProperties);
+        ConnectionPoolConfiguration.Builder configuration = ConnectionPoolConfiguration
+                .builder(ConnectionFactoryBuilder.withUrl(r2dbcProperties.getUrl())
+                        .username(r2dbcProperties.getUsername())
+                        .password(r2dbcProperties.getPassword())
+                        .build())
+                .name(POOL_NAME)
+                .initialSize(poolProperties.initialSizeFor(eventLoops))
+                .maxSize(poolProperties.maxSizeFor(eventLoops))
+                .maxAcquireTime(poolProperties.getMaxAcquireTime())
+                .maxCreateConnectionTime(poolProperties.getMaxCreateConnectionTime())
+                .maxIdleTime(poolProperties.getMaxIdleTime())
+                .maxLifeTime(poolProperties.getMaxLifeTime())
+                .backgroundEvictionInterval(poolProperties.getBackgroundEvictionInterval())
+                .validationDepth(poolProperties.getValidationDepth());
+        if (StringUtils.hasText(poolProperties.getValidationQuery())) {
+            configuration.validationQuery(poolProperties.getValidationQuery());
+        }
+        ConnectionPool connectionPool = new ConnectionPool(configuration.build());
+        log.info("R2DBC pool '{}' sized {}..{} for {} event loops", POOL_NAME,
+                poolProperties.initialSizeFor(eventLoops), poolProperties.maxSizeFor(eventLoops), eventLoops);
+
+        new ConnectionPoolMetrics(connectionPool, POOL_NAME, Tags.empty()).bindTo(meterRegistry);
+        return new TimedConnectionFactory(connectionPool, POOL_NAME, meterRegistry);
+    }
+
+    // requests borrow connections on the loops the server runs on, its own ones when they are configured
+    static int eventLoops(NettyServerProperties nettyServerProperties) {
+        return nettyServerProperties.getEventLoopThreads() > 0
+                ? nettyServerProperties.getEventLoopThreads()
+                : LoopResources.DEFAULT_IO_WORKER_COUNT;
+    }
+}
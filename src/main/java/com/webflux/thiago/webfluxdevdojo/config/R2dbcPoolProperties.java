@@ -0,0 +1,31 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import io.r2dbc.spi.ValidationDepth;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.r2dbc.pool")
+public class R2dbcPoolProperties {
+    // 0 derives the size from the server's event loops: devdojo.netty.event-loop-threads, or the shared ones
+    private int initialSize = 0;
+    private int maxSize = 0;
+    private int connectionsPerEventLoop = 2;
+    private Duration maxAcquireTime = Duration.ofSeconds(3);
+    private Duration maxCreateConnectionTime = Duration.ofSeconds(5);
+    private Duration maxIdleTime = Duration.ofMinutes(10);
+    private Duration maxLifeTime = Duration.ofMinutes(30);
+    private Duration backgroundEvictionInterval = Duration.ofSeconds(30);
+    private ValidationDepth validationDepth = ValidationDepth.LOCAL;
+    private String validationQuery;
+
+    public int maxSizeFor(int eventLoops) {
+        return maxSize > 0 ? maxSize : eventLoops * connectionsPerEventLoop;
+    }
+
+    public int initialSizeFor(int eventLoops) {
+        return Math.min(initialSize > 0 ? initialSize : eventLoops, maxSizeFor(eventLoops));
+    }
+}
@@ -0,0 +1,21 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.tracing")
+public class ReactorTracingProperties {
+    private Mode mode = Mode.NONE;
+
+    public enum Mode {
+        // plain reactor stack traces
+        NONE,
+        // one light checkpoint per AnimeService operation, names the failing operation
+        CHECKPOINT,
+        // ReactorDebugAgent: assembly line of every operator, instrumented at class load
+        AGENT,
+        // Hooks.onOperatorDebug(): captures a stack trace on every operator assembly
+        FULL
+    }
+}
@@ -1,6 +1,7 @@
 package com.webflux.thiago.webfluxdevdojo.config;
 
 import com.webflux.thiago.webfluxdevdojo.domain.ApplicationUser;
+import com.webflux.thiago.webfluxdevdojo.service.ApplicationUserCache;
 import com.webflux.thiago.webfluxdevdojo.service.ApplicationUserService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpMethod;
@@ -16,6 +17,8 @@ import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 
+import static com.webflux.thiago.webfluxdevdojo.config.RoleAuthorizationManager.hasRole;
+
 @EnableWebFluxSecurity
 @EnableReactiveMethodSecurity
 public class SecurityConfig {
@@ -24,10 +27,13 @@ public class SecurityConfig {
         return serverHttpSecurity
                 .csrf().disable()
                 .authorizeExchange()
-                .pathMatchers(HttpMethod.GET, "/animes/**").hasRole("USER")
-                .pathMatchers(HttpMethod.POST, "/animes/**").hasRole("ADMIN")
-                .pathMatchers(HttpMethod.PUT, "/animes/**").hasRole("ADMIN")
-                .pathMatchers(HttpMethod.DELETE, "/animes/**").hasRole("ADMIN")
+                .pathMatchers(HttpMethod.GET, "/animes/**").access(hasRole("USER"))
+                .pathMatchers(HttpMethod.POST, "/animes/**").access(hasRole("ADMIN"))
+                .pathMatchers(HttpMethod.PUT, "/animes/**").access(hasRole("ADMIN"))
+                .pathMatchers(HttpMethod.DELETE, "/animes/**").access(hasRole("ADMIN"))
+                // the other endpoints expose thread dumps, blocking-call stacks and every metric
+                .pathMatchers("/actuator/health/**").authenticated()
+                .pathMatchers("/actuator/**").access(hasRole("ADMIN"))
                 .pathMatchers("/webjars/**", "/swagger-ui.html", "/v3/api-docs/**").permitAll()
                 .anyExchange().authenticated()
                 .and()
@@ -38,8 +44,10 @@ public class SecurityConfig {
     }
 
     @Bean
-    ReactiveAuthenticationManager authenticationManager(ApplicationUserService applicationUser){
-        return new UserDetailsRepositoryReactiveAuthenticationManager(applicationUser);
+    ReactiveAuthenticationManager authenticationManager(ApplicationUserService applicationUser,
+                                                        ApplicationUserCache applicationUserCache){
+        return new CachingReactiveAuthenticationManager(
+                new UserDetailsRepositoryReactiveAuthenticationManager(applicationUser), applicationUserCache);
     }
 //    @Bean
 //    public MapReactiveUserDetailsService mapReactiveUserDetailsService(){
@@ -0,0 +1,61 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long callers wait to acquire a connection from the pool, which the pool
+ * gauges (acquired, idle, pending) can't show on their own.
+ */
+public class TimedConnectionFactory implements ConnectionFactory, Wrapped<ConnectionPool> {
+
+    private final ConnectionPool connectionPool;
+    private final Timer acquired;
+    private final Timer failed;
+
+    public TimedConnectionFactory(ConnectionPool connectionPool, String name, MeterRegistry meterRegistry) {
+        this.connectionPool = connectionPool;
+        this.acquired = acquireTimer(name, "success", meterRegistry);
+        this.failed = acquireTimer(name, "error", meterRegistry);
+    }
+
+    private static Timer acquireTimer(String name, String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("r2dbc.pool.acquire")
+                .description("Time waited to acquire a connection from the pool")
+                .tags("name", name, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return connectionPool.create()
+                    .doOnSuccess(connection -> acquired.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doOnError(error -> failed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return connectionPool.getMetadata();
+    }
+
+    @Override
+    public ConnectionPool unwrap() {
+        return connectionPool;
+    }
+
+    public void dispose() {
+        connectionPool.dispose();
+    }
+}
@@ -1,6 +1,13 @@
 package com.webflux.thiago.webfluxdevdojo.controller;
 
+import com.webflux.thiago.webfluxdevdojo.config.CodecConfig;
 import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeBatchAck;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeChange;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeDeleteAck;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimePage;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeSearchMode;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeSuggestion;
 import com.webflux.thiago.webfluxdevdojo.service.AnimeService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
@@ -8,15 +15,22 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.security.SecurityScheme;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 @RequiredArgsConstructor
 @RestController
@@ -29,23 +43,81 @@ public class AnimeController {
 
     private final AnimeService animeService;
 
+    // the ETag comes from the collection revision, so a matching If-None-Match is answered
+    // with 304 before findAll is ever subscribed
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "lidt all animes",
         security = @SecurityRequirement(name = "Basic Authentication"),
         tags = "anime")
-    public Flux<Anime> findAll(){
+    public Mono<ResponseEntity<Flux<Anime>>> findAll(){
+        return collectionValidators("animes")
+                .map(response -> response.body(animeService.findAll()));
+    }
+
+    @GetMapping(params = "limit")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "list animes ordered by id, one page after the given id",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = "anime")
+    public Mono<ResponseEntity<AnimePage>> findPage(@RequestParam(defaultValue = "0") int after, @RequestParam int limit){
+        return collectionValidators("animes-" + after + "-" + limit)
+                .flatMap(response -> animeService.findPage(after, limit).map(response::body));
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE,
+            CodecConfig.APPLICATION_STREAM_SMILE_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "stream all animes as they are read from the database",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = "anime")
+    public Flux<Anime> stream(){
         return animeService.findAll();
     }
 
+    @GetMapping(path = "changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "stream anime changes as server-sent events, resumable with Last-Event-ID",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = "anime")
+    public Flux<ServerSentEvent<AnimeChange>> changes(@RequestHeader(name = "Last-Event-ID", required = false) String lastEventId){
+        return animeService.changes(lastEventId);
+    }
+
+    @GetMapping("search")
+    @Operation(summary = "search animes by name, mode prefix (autocomplete) or fulltext (ranked)",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = "anime")
+    public Flux<Anime> search(@RequestParam String q, @RequestParam(defaultValue = "prefix") String mode,
+                              @RequestParam(defaultValue = "20") int limit){
+        return animeService.search(q, searchMode(mode), limit);
+    }
+
+    @GetMapping("autocomplete")
+    @Operation(summary = "suggest animes whose name starts with q, from memory",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = "anime")
+    public Mono<List<AnimeSuggestion>> autocomplete(@RequestParam String q, @RequestParam(defaultValue = "10") int limit){
+        return animeService.autocomplete(q, limit);
+    }
+
     @GetMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "find one anime",
             security = @SecurityRequirement(name = "Basic Authentication"),
             tags = "anime")
-    public Mono<Anime> findById(@PathVariable int id){
-        return animeService.findById(id);
+    public Mono<ResponseEntity<Anime>> findById(@PathVariable int id){
+        return animeService.findById(id)
+                .map(anime -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+                    if (anime.getVersion() != null) {
+                        response.eTag(anime.getId() + "-" + anime.getVersion());
+                    }
+                    if (anime.getUpdatedAt() != null) {
+                        response.lastModified(anime.getUpdatedAt());
+                    }
+                    return response.body(anime);
+                });
     }
 
     @PostMapping
@@ -67,13 +139,36 @@ public class AnimeController {
         return animeService.saveAll(animes);
     }
 
+    @PostMapping(path = "batch",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, CodecConfig.APPLICATION_STREAM_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, CodecConfig.APPLICATION_STREAM_SMILE_VALUE})
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "create animes streamed as ndjson or smile, acknowledging each chunk once it is written",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = "anime")
+    public Flux<AnimeBatchAck> saveStream(@Valid @RequestBody Flux<Anime> animes){
+        return animeService.saveStream(animes);
+    }
+
     @PutMapping(path = "{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @Operation(summary = "update anime",
             security = @SecurityRequirement(name = "Basic Authentication"),
             tags = "anime")
-    public Mono<Void> update(@PathVariable int id, @Valid @RequestBody Anime anime){
-        return animeService.update(anime.withId(id));
+    public Mono<Void> update(@PathVariable int id, @Valid @RequestBody Anime anime,
+                             @RequestHeader HttpHeaders headers){
+        List<String> ifMatch = headers.getIfMatch();
+        if(ifMatch.isEmpty()){
+            return animeService.update(anime.withId(id));
+        }
+        if(ifMatch.contains("*")){
+            return animeService.updateIfExists(anime.withId(id));
+        }
+        List<Integer> versions = matchedVersions(id, ifMatch);
+        if(versions.isEmpty()){
+            return Mono.error(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match does not match anime " + id));
+        }
+        return animeService.updateIfMatch(anime.withId(id), versions);
     }
 
     @DeleteMapping(path = "{id}")
@@ -86,4 +181,53 @@ public class AnimeController {
         return animeService.delete(id);
     }
 
+    @DeleteMapping(params = "ids")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "removes the animes with the given ids in one statement",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = "anime")
+    public Mono<AnimeDeleteAck> deleteAll(@RequestParam List<Integer> ids){
+        return animeService.deleteAll(ids);
+    }
+
+    @DeleteMapping(params = {"from", "to"})
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "removes the animes with ids from..to, both inclusive, in one statement",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = "anime")
+    public Mono<AnimeDeleteAck> deleteBetween(@RequestParam int from, @RequestParam int to){
+        return animeService.deleteBetween(from, to);
+    }
+
+    private static AnimeSearchMode searchMode(String mode){
+        try {
+            return AnimeSearchMode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "mode must be prefix or fulltext");
+        }
+    }
+
+    // If-Match compares strongly, so only our own "<id>-<version>" tags can match
+    private static List<Integer> matchedVersions(int id, List<String> eTags){
+        String prefix = "\"" + id + "-";
+        List<Integer> versions = new ArrayList<>();
+        for(String eTag : eTags){
+            if(eTag.startsWith(prefix) && eTag.endsWith("\"") && eTag.length() > prefix.length() + 1){
+                try {
+                    versions.add(Integer.parseInt(eTag.substring(prefix.length(), eTag.length() - 1)));
+                } catch (NumberFormatException ignored) {
+                    // not one of ours, cannot match
+                }
+            }
+        }
+        return versions;
+    }
+
+    // JSON and Smile bodies share one strong ETag, so caches must key on Accept as well
+    private Mono<ResponseEntity.BodyBuilder> collectionValidators(String prefix){
+        return animeService.findRevision()
+                .map(revision -> ResponseEntity.ok().eTag(prefix + "-" + revision))
+                .defaultIfEmpty(ResponseEntity.ok())
+                .map(response -> response.varyBy(HttpHeaders.ACCEPT));
+    }
 }
@@ -2,10 +2,14 @@ package com.webflux.thiago.webfluxdevdojo.domain;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Table;
 
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.time.Instant;
 
 @Data
 @AllArgsConstructor
@@ -19,5 +23,12 @@ public class Anime {
 
     @NotEmpty(message = "the field name cannot be empty")
     @NotNull
+    @Size(max = 255, message = "the field name cannot be longer than 255 characters")
     private String name;
+
+    @Version
+    private Integer version;
+
+    @LastModifiedDate
+    private Instant updatedAt;
 }
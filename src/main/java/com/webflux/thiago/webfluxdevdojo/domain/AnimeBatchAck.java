@@ -0,0 +1,18 @@
+package com.webflux.thiago.webfluxdevdojo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AnimeBatchAck {
+    private long chunk; // 0-based position of the chunk in the request stream
+    private int count;
+    private List<Integer> ids;
+}
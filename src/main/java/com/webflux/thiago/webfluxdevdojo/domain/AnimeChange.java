@@ -0,0 +1,23 @@
+package com.webflux.thiago.webfluxdevdojo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AnimeChange {
+    public enum Type {
+        CREATED, UPDATED, DELETED,
+        // the change cannot be described row by row (range delete, resume point left the window): reload
+        RESYNC
+    }
+
+    private long id; // increasing from 1 per start, sent as the SSE id "<epoch>-<id>" so clients can resume with Last-Event-ID
+    private Type type;
+    private Integer animeId;
+    private Anime anime; // state after CREATED/UPDATED, version is null when the update did not know it
+}
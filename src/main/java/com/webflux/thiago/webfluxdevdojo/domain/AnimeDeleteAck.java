@@ -0,0 +1,14 @@
+package com.webflux.thiago.webfluxdevdojo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AnimeDeleteAck {
+    private int count; // rows actually deleted, ids that did not exist are not counted
+}
@@ -0,0 +1,17 @@
+package com.webflux.thiago.webfluxdevdojo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AnimePage {
+    private List<Anime> content;
+    private Integer next; // value for ?after= to fetch the next page, null on the last one
+}
@@ -0,0 +1,8 @@
+package com.webflux.thiago.webfluxdevdojo.domain;
+
+public enum AnimeSearchMode {
+    // names starting with the query, case-insensitive, in name order; meant for autocomplete
+    PREFIX,
+    // names containing all the query's words, best ts_rank first; accepts "quoted phrases", or and -word
+    FULLTEXT
+}
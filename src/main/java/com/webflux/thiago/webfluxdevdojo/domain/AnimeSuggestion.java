@@ -0,0 +1,13 @@
+package com.webflux.thiago.webfluxdevdojo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AnimeSuggestion {
+    private int id;
+    private String name;
+}
@@ -0,0 +1,70 @@
+package com.webflux.thiago.webfluxdevdojo.domain;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parsed form of the application_user.authorities column ("ROLE_USER,ROLE_ADMIN").
+ * Instances are interned per raw column value and share their GrantedAuthority objects,
+ * so looking them up again allocates nothing.
+ */
+@Getter
+public final class AuthoritySet {
+    private static final String ROLE_PREFIX = "ROLE_";
+    private static final AuthoritySet EMPTY = new AuthoritySet(Collections.emptySet(), Collections.emptySet(), Collections.emptySet());
+    private static final Map<String, AuthoritySet> SETS = new ConcurrentHashMap<>();
+    private static final Map<String, GrantedAuthority> AUTHORITIES = new ConcurrentHashMap<>();
+
+    private final Set<GrantedAuthority> authorities;
+    private final Set<String> authorityNames;
+    private final Set<String> roles;
+
+    private AuthoritySet(Set<GrantedAuthority> authorities, Set<String> authorityNames, Set<String> roles) {
+        this.authorities = authorities;
+        this.authorityNames = authorityNames;
+        this.roles = roles;
+    }
+
+    public static AuthoritySet of(String authorities) {
+        if (authorities == null || authorities.isBlank()) {
+            return EMPTY;
+        }
+        return SETS.computeIfAbsent(authorities, AuthoritySet::parse);
+    }
+
+    public boolean hasRole(String role) {
+        return roles.contains(role);
+    }
+
+    public boolean hasAuthority(String authority) {
+        return authorityNames.contains(authority);
+    }
+
+    private static AuthoritySet parse(String raw) {
+        Set<GrantedAuthority> authorities = new LinkedHashSet<>();
+        Set<String> authorityNames = new LinkedHashSet<>();
+        Set<String> roles = new LinkedHashSet<>();
+        for (String token : raw.split(",")) {
+            String name = token.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            GrantedAuthority authority = AUTHORITIES.computeIfAbsent(name, SimpleGrantedAuthority::new);
+            authorities.add(authority);
+            authorityNames.add(authority.getAuthority());
+            if (name.startsWith(ROLE_PREFIX)) {
+                roles.add(name.substring(ROLE_PREFIX.length()));
+            }
+        }
+        return new AuthoritySet(Collections.unmodifiableSet(authorities),
+                Collections.unmodifiableSet(authorityNames),
+                Collections.unmodifiableSet(roles));
+    }
+}
@@ -0,0 +1,23 @@
+package com.webflux.thiago.webfluxdevdojo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * NOTIFY payload telling the other instances what to drop from their caches.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ClusterNotification {
+    private String node; // sender, so an instance skips its own notifications
+    private List<AnimeChange> animes; // type and animeId only
+    private boolean allAnimes;
+    private List<String> users;
+    private boolean allUsers;
+}
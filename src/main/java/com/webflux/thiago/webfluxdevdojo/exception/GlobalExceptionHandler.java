@@ -1,6 +1,7 @@
 package com.webflux.thiago.webfluxdevdojo.exception;
 
-
+import com.webflux.thiago.webfluxdevdojo.config.CodecConfig;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.autoconfigure.web.WebProperties;
 import org.springframework.boot.autoconfigure.web.reactive.error.AbstractErrorWebExceptionHandler;
 import org.springframework.boot.web.error.ErrorAttributeOptions;
@@ -13,8 +14,11 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -23,12 +27,18 @@ import static org.springframework.boot.web.error.ErrorAttributeOptions.*;
 @Component
 @Order(-2)
 public class GlobalExceptionHandler extends AbstractErrorWebExceptionHandler {
+    private static final List<MediaType> ERROR_MEDIA_TYPES = List.of(MediaType.APPLICATION_JSON, CodecConfig.APPLICATION_SMILE);
+
+    private final MeterRegistry meterRegistry;
+
     public GlobalExceptionHandler(ErrorAttributes errorAttributes,
                                   WebProperties.Resources resources,
                                   ApplicationContext applicationContext,
-                                  ServerCodecConfigurer codecConfigurer) {
+                                  ServerCodecConfigurer codecConfigurer,
+                                  MeterRegistry meterRegistry) {
         super(errorAttributes, resources, applicationContext);
         this.setMessageWriters(codecConfigurer.getWriters());
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
@@ -43,10 +53,33 @@ public class GlobalExceptionHandler extends AbstractErrorWebExceptionHandler {
 
         Map<String, Object> errorAttributes = getErrorAttributes(serverRequest, errorAttributeOptions);
         int status = (int)Optional.ofNullable(errorAttributes.get("status")).orElse(500);
+        countError(getError(serverRequest), status);
         return ServerResponse.status(status)
-                .contentType(MediaType.APPLICATION_JSON)
+                .contentType(errorMediaType(serverRequest))
                 .body(BodyInserters.fromValue(errorAttributes));
     }
+
+    // Smile callers get Smile errors; anything else, including no Accept at all, gets JSON
+    private MediaType errorMediaType(ServerRequest serverRequest){
+        List<MediaType> accepted = new ArrayList<>(serverRequest.headers().accept());
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for(MediaType mediaType : accepted){
+            for(MediaType errorMediaType : ERROR_MEDIA_TYPES){
+                if(mediaType.isCompatibleWith(errorMediaType)){
+                    return errorMediaType;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+    private void countError(Throwable error, int status){
+        meterRegistry.counter("http.server.errors",
+                "status", String.valueOf(status),
+                "exception", error.getClass().getSimpleName(),
+                "responseStatusException", String.valueOf(error instanceof ResponseStatusException))
+                .increment();
+    }
+
     private boolean isTraceParamEnabled(String query){
         return !StringUtils.isEmpty(query) && query.contains("trace=true");
     }
@@ -0,0 +1,86 @@
+package com.webflux.thiago.webfluxdevdojo.monitoring;
+
+import com.webflux.thiago.webfluxdevdojo.config.BlockHoundProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationListener;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingOperationError;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Installs BlockHound according to devdojo.blockhound.mode before any bean is created.
+ * Registered through META-INF/spring.factories so tests and the packaged app get the same
+ * behaviour; with mode OFF (the default) nothing is instrumented.
+ */
+@Slf4j
+public class BlockHoundInstaller implements ApplicationListener<ApplicationEnvironmentPreparedEvent> {
+    private static final AtomicBoolean INSTALLED = new AtomicBoolean();
+    // library internals that only block on brief lock contention; kept out of application.yml so
+    // a deployment replacing devdojo.blockhound.allow-blocking-calls-inside cannot drop them
+    static final List<String> BUILT_IN_ALLOWED_CALLS = List.of(
+            "java.util.concurrent.PriorityBlockingQueue#offer",
+            "com.github.benmanes.caffeine.cache.BoundedLocalCache#performCleanUp");
+
+    @Override
+    public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+        BlockHoundProperties properties = Binder.get(event.getEnvironment())
+                .bind("devdojo.blockhound", BlockHoundProperties.class)
+                .orElseGet(BlockHoundProperties::new);
+        if (properties.getMode() == BlockHoundProperties.Mode.OFF || !INSTALLED.compareAndSet(false, true)) {
+            return;
+        }
+        BlockingCallRecorder recorder = BlockingCallRecorder.getInstance();
+        recorder.configure(properties);
+        boolean failFast = properties.getMode() == BlockHoundProperties.Mode.FAIL;
+        List<String> allowed = allowedBlockingCalls(properties);
+
+        BlockHound.install(builder -> {
+            for (String entry : allowed) {
+                String[] classAndMethod = entry.trim().split("#");
+                if (classAndMethod.length != 2) {
+                    throw new IllegalArgumentException("Expected Class#method in devdojo.blockhound.allow-blocking-calls-inside but got " + entry);
+                }
+                builder.allowBlockingCallsInside(classAndMethod[0], classAndMethod[1]);
+            }
+            builder.blockingMethodCallback(method -> {
+                recorder.record(method);
+                if (failFast) {
+                    throw new BlockingOperationError(method);
+                }
+            });
+        });
+        startReporter(recorder, properties);
+        log.info("BlockHound installed in {} mode with {} allowed blocking call sites",
+                properties.getMode(), allowed.size());
+    }
+
+    static List<String> allowedBlockingCalls(BlockHoundProperties properties) {
+        List<String> allowed = new ArrayList<>(BUILT_IN_ALLOWED_CALLS);
+        allowed.addAll(properties.getAllowBlockingCallsInside());
+        return allowed;
+    }
+
+    private static void startReporter(BlockingCallRecorder recorder, BlockHoundProperties properties) {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "blockhound-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getReportInterval().toMillis();
+        reporter.scheduleWithFixedDelay(() -> {
+            BlockingCall call;
+            while ((call = recorder.pollUnreported()) != null) {
+                log.warn("Blocking call {} on thread {}, stack:\n\t{}", call.getBlockingMethod(),
+                        call.getFirstThread(), String.join("\n\t", call.getStack()));
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,37 @@
+package com.webflux.thiago.webfluxdevdojo.monitoring;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One distinct blocking call site: the blocking method plus the stack that reached it.
+ */
+@Getter
+public class BlockingCall {
+    private final String blockingMethod;
+    private final List<String> stack;
+    private final String firstThread;
+    private final Instant firstSeen = Instant.now();
+    private volatile Instant lastSeen = firstSeen;
+    @JsonIgnore
+    private final LongAdder counter = new LongAdder();
+
+    BlockingCall(String blockingMethod, List<String> stack, String firstThread) {
+        this.blockingMethod = blockingMethod;
+        this.stack = stack;
+        this.firstThread = firstThread;
+    }
+
+    void increment() {
+        counter.increment();
+        lastSeen = Instant.now();
+    }
+
+    public long getCount() {
+        return counter.sum();
+    }
+}
@@ -0,0 +1,25 @@
+package com.webflux.thiago.webfluxdevdojo.monitoring;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+@Component
+public class BlockingCallMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        BlockingCallRecorder recorder = BlockingCallRecorder.getInstance();
+        FunctionCounter.builder("blockhound.blocking.calls", recorder, BlockingCallRecorder::getTotal)
+                .description("Blocking calls detected on non-blocking threads")
+                .register(registry);
+        FunctionCounter.builder("blockhound.blocking.calls.dropped", recorder, BlockingCallRecorder::getDropped)
+                .description("Blocking calls not recorded because too many distinct signatures were seen")
+                .register(registry);
+        Gauge.builder("blockhound.blocking.signatures", recorder, BlockingCallRecorder::getSignatures)
+                .description("Distinct blocking call stack signatures")
+                .register(registry);
+    }
+}
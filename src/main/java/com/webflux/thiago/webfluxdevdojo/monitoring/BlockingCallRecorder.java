@@ -0,0 +1,106 @@
+package com.webflux.thiago.webfluxdevdojo.monitoring;
+
+import com.webflux.thiago.webfluxdevdojo.config.BlockHoundProperties;
+import reactor.blockhound.BlockingMethod;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Counts blocking calls per stack signature. BlockHound is installed once per JVM, so there is
+ * one recorder per JVM as well. {@link #record} runs on the offending thread and must not block
+ * itself, which is why new signatures are queued for a reporter instead of being logged here.
+ */
+public final class BlockingCallRecorder {
+    private static final BlockingCallRecorder INSTANCE = new BlockingCallRecorder();
+    private static final Set<String> SKIPPED_FRAMES = Set.of(BlockingCallRecorder.class.getName(),
+            BlockHoundInstaller.class.getName());
+
+    private final Map<String, BlockingCall> calls = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<BlockingCall> unreported = new ConcurrentLinkedQueue<>();
+    private final LongAdder total = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile BlockHoundProperties.Mode mode = BlockHoundProperties.Mode.OFF;
+    private volatile int stackDepth = 12;
+    private volatile int maxSignatures = 500;
+
+    BlockingCallRecorder() {
+    }
+
+    public static BlockingCallRecorder getInstance() {
+        return INSTANCE;
+    }
+
+    void configure(BlockHoundProperties properties) {
+        this.mode = properties.getMode();
+        this.stackDepth = properties.getStackDepth();
+        this.maxSignatures = properties.getMaxSignatures();
+    }
+
+    void record(BlockingMethod method) {
+        total.increment();
+        String blockingMethod = method.getClassName() + "#" + method.getName();
+        List<String> stack = StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> !frame.getClassName().startsWith("reactor.blockhound.")
+                        && !SKIPPED_FRAMES.contains(frame.getClassName()))
+                .limit(stackDepth)
+                .map(frame -> frame.getClassName() + "." + frame.getMethodName() + ":" + frame.getLineNumber())
+                .collect(Collectors.toList()));
+        String signature = blockingMethod + "|" + String.join("|", stack);
+        BlockingCall call = calls.get(signature);
+        if (call == null) {
+            if (calls.size() >= maxSignatures) {
+                dropped.increment();
+                return;
+            }
+            call = calls.computeIfAbsent(signature, key -> {
+                BlockingCall created = new BlockingCall(blockingMethod, stack, Thread.currentThread().getName());
+                unreported.add(created);
+                return created;
+            });
+        }
+        call.increment();
+    }
+
+    public BlockHoundProperties.Mode getMode() {
+        return mode;
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Calls that were not recorded because maxSignatures distinct signatures were already known.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public int getSignatures() {
+        return calls.size();
+    }
+
+    public List<BlockingCall> getCalls() {
+        return calls.values().stream()
+                .sorted(Comparator.comparingLong(BlockingCall::getCount).reversed())
+                .collect(Collectors.toList());
+    }
+
+    BlockingCall pollUnreported() {
+        return unreported.poll();
+    }
+
+    void reset() {
+        calls.clear();
+        unreported.clear();
+        total.reset();
+        dropped.reset();
+    }
+}
@@ -0,0 +1,25 @@
+package com.webflux.thiago.webfluxdevdojo.monitoring;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "blockingcalls")
+public class BlockingCallsEndpoint {
+
+    @ReadOperation
+    public Map<String, Object> blockingCalls() {
+        BlockingCallRecorder recorder = BlockingCallRecorder.getInstance();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("mode", recorder.getMode());
+        report.put("total", recorder.getTotal());
+        report.put("dropped", recorder.getDropped());
+        report.put("signatures", recorder.getSignatures());
+        report.put("calls", recorder.getCalls());
+        return report;
+    }
+}
@@ -0,0 +1,265 @@
+package com.webflux.thiago.webfluxdevdojo.monitoring;
+
+import com.webflux.thiago.webfluxdevdojo.config.EventLoopMonitorProperties;
+import com.webflux.thiago.webfluxdevdojo.config.NettyServerConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.HttpResources;
+import reactor.netty.resources.LoopResources;
+import reactor.netty.tcp.TcpResources;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Submits a no-op probe to every Netty event loop each probeInterval and measures how long it
+ * waits before running. A probe still waiting after stallThreshold means the loop is stalled
+ * (blocked or busy with a long task); the loop thread's stack is then logged, which tells an
+ * event-loop stall apart from time spent waiting on R2DBC.
+ * <p>
+ * "http" are the server loops (dedicated ones when devdojo.netty.event-loop-threads is set),
+ * "tcp" the client loops the R2DBC driver connects through. Probing runs on its own thread so it keeps
+ * working while the loops are stuck.
+ */
+@Component
+@Slf4j
+public class EventLoopMonitor implements SmartLifecycle {
+    private final EventLoopMonitorProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<LoopResources> serverLoopResources;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final List<LoopProbe> probes = new ArrayList<>();
+    private ScheduledExecutorService probeExecutor;
+    private ScheduledFuture<?> probing;
+
+    public EventLoopMonitor(EventLoopMonitorProperties properties, MeterRegistry meterRegistry,
+                            @Qualifier(NettyServerConfig.SERVER_LOOP_RESOURCES) ObjectProvider<LoopResources> serverLoopResources) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.serverLoopResources = serverLoopResources;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!properties.isEnabled() || isRunning()) {
+            return;
+        }
+        if (probes.isEmpty()) {
+            addProbes("http", serverLoopResources.getIfAvailable(HttpResources::get).onServer(LoopResources.DEFAULT_NATIVE));
+            addProbes("tcp", TcpResources.get().onClient(LoopResources.DEFAULT_NATIVE));
+            probeExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "eventloop-monitor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        long interval = properties.getProbeInterval().toNanos();
+        probing = probeExecutor.scheduleAtFixedRate(this::probe, interval, interval, TimeUnit.NANOSECONDS);
+        log.info("Event loop monitor probing {} loops every {}, stall threshold {}",
+                probes.size(), properties.getProbeInterval(), properties.getStallThreshold());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (probing != null) {
+            probing.cancel(false);
+            probing = null;
+            log.info("Event loop monitor stopped");
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return probing != null;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return properties.isEnabled();
+    }
+
+    public synchronized void setEnabled(boolean enabled) {
+        properties.setEnabled(enabled);
+        if (enabled) {
+            start();
+        } else {
+            stop();
+        }
+    }
+
+    public void setStallThreshold(Duration stallThreshold) {
+        properties.setStallThreshold(stallThreshold);
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", properties.isEnabled());
+        status.put("probeInterval", properties.getProbeInterval().toString());
+        status.put("stallThreshold", properties.getStallThreshold().toString());
+        Map<String, Object> loops = new LinkedHashMap<>();
+        for (LoopProbe probe : probes) {
+            Map<String, Object> loop = new LinkedHashMap<>();
+            loop.put("thread", probe.thread == null ? null : probe.thread.getName());
+            loop.put("pendingTasks", probe.pendingTasks());
+            loop.put("lastLatencyMicros", TimeUnit.NANOSECONDS.toMicros(probe.lastLatencyNanos));
+            loop.put("maxLatencyMicros", TimeUnit.NANOSECONDS.toMicros((long) probe.latency.max(TimeUnit.NANOSECONDS)));
+            loop.put("stalls", (long) probe.stalls.count());
+            loops.put(probe.group + "-" + probe.index, loop);
+        }
+        status.put("loops", loops);
+        return status;
+    }
+
+    private void addProbes(String group, EventLoopGroup eventLoopGroup) {
+        int index = 0;
+        for (EventExecutor executor : eventLoopGroup) {
+            probes.add(new LoopProbe(group, index++, executor));
+        }
+    }
+
+    // one round over every loop; runs on the probe thread, package-private so tests can drive it
+    void probe() {
+        long stallThreshold = properties.getStallThreshold().toNanos();
+        for (LoopProbe probe : probes) {
+            try {
+                probe.probe(stallThreshold);
+            } catch (RuntimeException e) {
+                log.warn("Event loop probe {}-{} failed", probe.group, probe.index, e);
+            }
+        }
+    }
+
+    private class LoopProbe implements Runnable {
+        private final String group;
+        private final int index;
+        private final EventExecutor executor;
+        private final Timer latency;
+        private final Counter stalls;
+        // System.nanoTime() of the probe waiting in the loop's queue, 0 when none is
+        private final AtomicLong submittedAt = new AtomicLong();
+        private volatile Thread thread;
+        private volatile long lastLatencyNanos;
+        private boolean stallCounted;
+        private long lastThreadDump;
+        private boolean threadDumped;
+
+        LoopProbe(String group, int index, EventExecutor executor) {
+            this.group = group;
+            this.index = index;
+            this.executor = executor;
+            Tags tags = Tags.of("group", group, "loop", String.valueOf(index));
+            this.latency = Timer.builder("eventloop.probe.latency")
+                    .description("Time a task waits in an event loop before it runs")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.stalls = Counter.builder("eventloop.stalls")
+                    .description("Probes that waited longer than the stall threshold")
+                    .tags(tags)
+                    .register(meterRegistry);
+            Gauge.builder("eventloop.pending.tasks", this, LoopProbe::pendingTasks)
+                    .description("Tasks queued on the event loop")
+                    .tags(tags)
+                    .register(meterRegistry);
+        }
+
+        void probe(long stallThreshold) {
+            long now = System.nanoTime();
+            long waitingSince = submittedAt.get();
+            if (waitingSince != 0) {
+                long stalledFor = now - waitingSince;
+                if (stalledFor > stallThreshold && !stallCounted) {
+                    stallCounted = true;
+                    stalls.increment();
+                    logStall(stalledFor, now);
+                }
+                return;
+            }
+            stallCounted = false;
+            submittedAt.set(now);
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                submittedAt.set(0);
+            }
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            long waited = System.nanoTime() - submittedAt.get();
+            lastLatencyNanos = waited;
+            latency.record(waited, TimeUnit.NANOSECONDS);
+            submittedAt.set(0);
+        }
+
+        double pendingTasks() {
+            return executor instanceof SingleThreadEventExecutor
+                    ? ((SingleThreadEventExecutor) executor).pendingTasks()
+                    : Double.NaN;
+        }
+
+        private void logStall(long stalledFor, long now) {
+            Thread loopThread = thread;
+            boolean dump = loopThread != null
+                    && (!threadDumped || now - lastThreadDump >= properties.getThreadDumpInterval().toNanos());
+            if (!dump) {
+                log.warn("Event loop {}-{} stalled for {} ms with {} pending tasks", group, index,
+                        TimeUnit.NANOSECONDS.toMillis(stalledFor), (long) pendingTasks());
+                return;
+            }
+            threadDumped = true;
+            lastThreadDump = now;
+            StringBuilder dumpText = new StringBuilder();
+            ThreadInfo info = threadMXBean.getThreadInfo(new long[]{loopThread.getId()}, true, true)[0];
+            appendThread(dumpText, info);
+            if (info != null && info.getLockOwnerId() != -1) {
+                appendThread(dumpText, threadMXBean.getThreadInfo(new long[]{info.getLockOwnerId()}, true, true)[0]);
+            }
+            log.warn("Event loop {}-{} stalled for {} ms with {} pending tasks{}", group, index,
+                    TimeUnit.NANOSECONDS.toMillis(stalledFor), (long) pendingTasks(), dumpText);
+        }
+
+        // ThreadInfo.toString() cuts the stack at 8 frames, too short to find the caller
+        private void appendThread(StringBuilder dumpText, ThreadInfo info) {
+            if (info == null) {
+                return;
+            }
+            dumpText.append("\n\"").append(info.getThreadName()).append("\" ").append(info.getThreadState());
+            LockInfo lock = info.getLockInfo();
+            if (lock != null) {
+                dumpText.append(" on ").append(lock);
+                if (info.getLockOwnerName() != null) {
+                    dumpText.append(" owned by \"").append(info.getLockOwnerName()).append('"');
+                }
+            }
+            for (StackTraceElement element : info.getStackTrace()) {
+                dumpText.append("\n\tat ").append(element);
+            }
+        }
+    }
+}
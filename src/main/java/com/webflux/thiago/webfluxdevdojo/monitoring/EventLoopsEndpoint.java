@@ -0,0 +1,38 @@
+package com.webflux.thiago.webfluxdevdojo.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * GET shows the per-loop probe state, POST {"enabled": true, "stallThreshold": "200ms"}
+ * switches the monitor without a restart.
+ */
+@Component
+@Endpoint(id = "eventloops")
+@RequiredArgsConstructor
+public class EventLoopsEndpoint {
+    private final EventLoopMonitor eventLoopMonitor;
+
+    @ReadOperation
+    public Map<String, Object> eventLoops() {
+        return eventLoopMonitor.status();
+    }
+
+    @WriteOperation
+    public Map<String, Object> configure(@Nullable Boolean enabled, @Nullable Duration stallThreshold) {
+        if (stallThreshold != null) {
+            eventLoopMonitor.setStallThreshold(stallThreshold);
+        }
+        if (enabled != null) {
+            eventLoopMonitor.setEnabled(enabled);
+        }
+        return eventLoopMonitor.status();
+    }
+}
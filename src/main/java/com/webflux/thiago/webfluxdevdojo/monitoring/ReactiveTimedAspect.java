@@ -0,0 +1,85 @@
+package com.webflux.thiago.webfluxdevdojo.monitoring;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times Mono/Flux returning methods of classes annotated with {@link Timed}, from subscription
+ * until the publisher terminates. Micrometer's own TimedAspect would only time the assembly.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ReactiveTimedAspect {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, OutcomeTimers> timers = new ConcurrentHashMap<>();
+
+    // the annotation is looked up instead of bound: reactive @Transactional proceeds lazily, after
+    // the JoinPointMatch that argument binding relies on has left the invocation thread
+    @Around("@within(io.micrometer.core.annotation.Timed) && execution(public * *(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object result = joinPoint.proceed();
+        if (!(result instanceof Mono) && !(result instanceof Flux)) {
+            return result;
+        }
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        OutcomeTimers outcomeTimers = timers.computeIfAbsent(method, key -> new OutcomeTimers(key,
+                AnnotatedElementUtils.findMergedAnnotation(key.getDeclaringClass(), Timed.class)));
+        if (result instanceof Mono) {
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return ((Mono<?>) result).doFinally(signal -> outcomeTimers.record(signal, start));
+            });
+        }
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return ((Flux<?>) result).doFinally(signal -> outcomeTimers.record(signal, start));
+        });
+    }
+
+    private class OutcomeTimers {
+        private final Timer success;
+        private final Timer error;
+        private final Timer cancelled;
+
+        OutcomeTimers(Method method, Timed timed) {
+            this.success = timer(method, timed, "success");
+            this.error = timer(method, timed, "error");
+            this.cancelled = timer(method, timed, "cancelled");
+        }
+
+        private Timer timer(Method method, Timed timed, String outcome) {
+            return Timer.builder(timed.value())
+                    .description(timed.description().isEmpty() ? null : timed.description())
+                    .tags(timed.extraTags())
+                    .tags("class", method.getDeclaringClass().getSimpleName(),
+                            "method", method.getName(),
+                            "outcome", outcome)
+                    .publishPercentileHistogram(timed.histogram())
+                    .publishPercentiles(timed.percentiles().length == 0 ? null : timed.percentiles())
+                    .register(meterRegistry);
+        }
+
+        void record(SignalType signal, long start) {
+            Timer timer = signal == SignalType.ON_ERROR ? error : signal == SignalType.CANCEL ? cancelled : success;
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
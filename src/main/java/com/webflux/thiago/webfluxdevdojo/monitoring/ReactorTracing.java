@@ -0,0 +1,50 @@
+package com.webflux.thiago.webfluxdevdojo.monitoring;
+
+import com.webflux.thiago.webfluxdevdojo.config.ReactorTracingProperties.Mode;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Mono;
+import reactor.tools.agent.ReactorDebugAgent;
+
+/**
+ * Process-wide operator tracing switch. The checkpoint helpers are no-ops unless the mode is
+ * CHECKPOINT, so services can call them unconditionally.
+ */
+@Slf4j
+public final class ReactorTracing {
+    private static volatile Mode mode = Mode.NONE;
+
+    private ReactorTracing() {
+    }
+
+    public static synchronized void install(Mode requested) {
+        if (requested == mode) {
+            return;
+        }
+        if (mode == Mode.AGENT) {
+            log.warn("ReactorDebugAgent cannot be removed once installed, it stays active alongside {}", requested);
+        }
+        Hooks.resetOnOperatorDebug();
+        if (requested == Mode.AGENT) {
+            ReactorDebugAgent.init();
+            ReactorDebugAgent.processExistingClasses();
+        } else if (requested == Mode.FULL) {
+            Hooks.onOperatorDebug();
+        }
+        mode = requested;
+        log.info("Reactor operator tracing mode {}", requested);
+    }
+
+    public static Mode getMode() {
+        return mode;
+    }
+
+    public static <T> Mono<T> checkpoint(Mono<T> mono, String description) {
+        return mode == Mode.CHECKPOINT ? mono.checkpoint(description) : mono;
+    }
+
+    public static <T> Flux<T> checkpoint(Flux<T> flux, String description) {
+        return mode == Mode.CHECKPOINT ? flux.checkpoint(description) : flux;
+    }
+}
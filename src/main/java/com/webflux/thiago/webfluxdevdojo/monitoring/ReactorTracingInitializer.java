@@ -0,0 +1,21 @@
+package com.webflux.thiago.webfluxdevdojo.monitoring;
+
+import com.webflux.thiago.webfluxdevdojo.config.ReactorTracingProperties;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Applies devdojo.tracing.mode before the application classes are loaded, which the debug
+ * agent needs to instrument them cheaply.
+ */
+public class ReactorTracingInitializer implements ApplicationListener<ApplicationEnvironmentPreparedEvent> {
+
+    @Override
+    public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+        ReactorTracingProperties properties = Binder.get(event.getEnvironment())
+                .bind("devdojo.tracing", ReactorTracingProperties.class)
+                .orElseGet(ReactorTracingProperties::new);
+        ReactorTracing.install(properties.getMode());
+    }
+}
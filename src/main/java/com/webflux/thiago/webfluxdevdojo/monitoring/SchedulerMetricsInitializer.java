@@ -0,0 +1,22 @@
+package com.webflux.thiago.webfluxdevdojo.monitoring;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.context.ApplicationListener;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Turns on Reactor's executor metrics (active/queued/completed tasks per scheduler) before any
+ * Scheduler is created, when devdojo.monitoring.event-loop.scheduler-metrics is true.
+ */
+@Slf4j
+public class SchedulerMetricsInitializer implements ApplicationListener<ApplicationEnvironmentPreparedEvent> {
+
+    @Override
+    public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+        if (event.getEnvironment().getProperty("devdojo.monitoring.event-loop.scheduler-metrics", Boolean.class, false)) {
+            Schedulers.enableMetrics();
+            log.info("Reactor Schedulers metrics enabled");
+        }
+    }
+}
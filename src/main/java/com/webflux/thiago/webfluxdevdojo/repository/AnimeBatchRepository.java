@@ -0,0 +1,19 @@
+package com.webflux.thiago.webfluxdevdojo.repository;
+
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface AnimeBatchRepository {
+    // name, version and updated_at are bound for every row
+    int PARAMETERS_PER_ROW = 3;
+    // postgres allows at most 32767 bind parameters per statement
+    int MAX_ROWS = 32767 / PARAMETERS_PER_ROW;
+
+    /**
+     * Inserts all animes with a single multi-row INSERT and emits the generated ids in the same order.
+     * At most MAX_ROWS animes fit in one statement.
+     */
+    Flux<Integer> insertAll(List<Anime> animes);
+}
@@ -0,0 +1,40 @@
+package com.webflux.thiago.webfluxdevdojo.repository;
+
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+
+@RequiredArgsConstructor
+public class AnimeBatchRepositoryImpl implements AnimeBatchRepository {
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<Integer> insertAll(List<Anime> animes) {
+        if (animes.isEmpty()) {
+            return Flux.empty();
+        }
+        Instant now = Instant.now();
+        StringBuilder sql = new StringBuilder("INSERT INTO anime (name, version, updated_at) VALUES ");
+        for (int i = 0; i < animes.size(); i++) {
+            sql.append(i == 0 ? "(" : ", (")
+                    .append(":name").append(i)
+                    .append(", :version").append(i)
+                    .append(", :updatedAt").append(i).append(')');
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString())
+                .filter(statement -> statement.returnGeneratedValues("id"));
+        for (int i = 0; i < animes.size(); i++) {
+            Anime anime = animes.get(i);
+            spec = spec.bind("name" + i, anime.getName())
+                    .bind("version" + i, Objects.requireNonNullElse(anime.getVersion(), 0))
+                    .bind("updatedAt" + i, Objects.requireNonNullElse(anime.getUpdatedAt(), now));
+        }
+        return spec.map(row -> row.get("id", Integer.class)).all();
+    }
+}
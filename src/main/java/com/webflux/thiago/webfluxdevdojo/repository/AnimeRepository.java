@@ -1,9 +1,53 @@
 package com.webflux.thiago.webfluxdevdojo.repository;
 
 import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface AnimeRepository  extends ReactiveCrudRepository<Anime, Integer> {
+import java.time.Instant;
+import java.util.Collection;
+
+public interface AnimeRepository  extends ReactiveCrudRepository<Anime, Integer>, AnimeBatchRepository {
     Mono<Anime> findById(int id);
+
+    @Query("SELECT * FROM anime WHERE id > :after ORDER BY id LIMIT :limit")
+    Flux<Anime> findPageAfter(int after, int limit);
+
+    // the expressions match the indexes in V3__anime_name_search.sql
+    @Query("SELECT * FROM anime WHERE lower(name) COLLATE \"C\" LIKE lower(:pattern) "
+            + "ORDER BY lower(name) COLLATE \"C\", id LIMIT :limit")
+    Flux<Anime> searchByNameLike(String pattern, int limit);
+
+    @Query("SELECT * FROM anime WHERE to_tsvector('simple', name) @@ websearch_to_tsquery('simple', :query) "
+            + "ORDER BY ts_rank(to_tsvector('simple', name), websearch_to_tsquery('simple', :query)) DESC, id LIMIT :limit")
+    Flux<Anime> searchByNameFullText(String query, int limit);
+
+    // sum of the slots a trigger bumps on every write that changed rows, see V2__anime_version_and_revision.sql;
+    // sum(bigint) is numeric in Postgres
+    @Query("SELECT CAST(sum(revision) AS BIGINT) FROM anime_revision")
+    Mono<Long> findRevision();
+
+    @Modifying
+    @Query("UPDATE anime SET name = :name, version = version + 1, updated_at = :updatedAt WHERE id = :id")
+    Mono<Integer> updateName(int id, String name, Instant updatedAt);
+
+    @Modifying
+    @Query("UPDATE anime SET name = :name, version = version + 1, updated_at = :updatedAt "
+            + "WHERE id = :id AND version IN (:versions)")
+    Mono<Integer> updateNameIfVersion(int id, Collection<Integer> versions, String name, Instant updatedAt);
+
+    @Modifying
+    @Query("DELETE FROM anime WHERE id = :id")
+    Mono<Integer> removeById(int id);
+
+    @Modifying
+    @Query("DELETE FROM anime WHERE id IN (:ids)")
+    Mono<Integer> removeByIdIn(Collection<Integer> ids);
+
+    @Modifying
+    @Query("DELETE FROM anime WHERE id BETWEEN :from AND :to")
+    Mono<Integer> removeByIdBetween(int from, int to);
 }
@@ -0,0 +1,257 @@
+package com.webflux.thiago.webfluxdevdojo.service;
+
+import com.webflux.thiago.webfluxdevdojo.config.AnimeAutocompleteProperties;
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeChange;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeSuggestion;
+import com.webflux.thiago.webfluxdevdojo.repository.AnimeRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory anime name typeahead behind GET /animes/autocomplete. A sorted {@link AnimeNameIndex}
+ * loaded with findAll() is kept current from AnimeChangeStream: changed names go to a small
+ * sorted delta and mask their old entry in the array, and once the delta reaches maxDeltaSize
+ * both are merged into a new array. A RESYNC (range delete, another instance's resync, a lost
+ * change stream) reloads from the database.
+ * <p>
+ * Changes are applied one at a time by a single subscriber; lookups read whatever state is
+ * current without locking and may briefly see a renamed anime under both names.
+ */
+@Component
+@Slf4j
+public class AnimeAutocomplete implements SmartLifecycle {
+    // skip list node and index, key, two Strings and the byId entry, per delta entry and beside the name itself
+    private static final long DELTA_ENTRY_BYTES = 200;
+    private static final Comparator<DeltaKey> DELTA_ORDER = Comparator.<DeltaKey, String>comparing(key -> key.key)
+            .thenComparingInt(key -> key.id);
+
+    private final AnimeAutocompleteProperties properties;
+    private final AnimeRepository animeRepository;
+    private final AnimeChangeStream animeChangeStream;
+    private volatile State state = new State(AnimeNameIndex.EMPTY);
+    private volatile boolean ready;
+    private Scheduler scheduler;
+    private Disposable applying;
+
+    public AnimeAutocomplete(AnimeAutocompleteProperties properties, AnimeRepository animeRepository,
+                             AnimeChangeStream animeChangeStream, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.animeRepository = animeRepository;
+        this.animeChangeStream = animeChangeStream;
+        Gauge.builder("anime.autocomplete.names", this, autocomplete -> autocomplete.state.size())
+                .description("Anime names in the autocomplete index")
+                .register(meterRegistry);
+        Gauge.builder("anime.autocomplete.memory", this, autocomplete -> autocomplete.state.memoryBytes())
+                .description("Estimated heap held by the autocomplete index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!properties.isEnabled() || isRunning()) {
+            return;
+        }
+        scheduler = Schedulers.newSingle("anime-autocomplete");
+        // the leading RESYNC is the initial load; changes made while a load runs queue up behind it
+        // and are applied on top, which is harmless since every change is an idempotent upsert or delete
+        applying = animeChangeStream.changes(null)
+                .startWith(AnimeChange.builder().type(AnimeChange.Type.RESYNC).build())
+                .onBackpressureBuffer()
+                .concatMap(this::apply)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofMinutes(1))
+                        .doBeforeRetry(signal -> log.warn("Autocomplete index stopped following changes, reloading", signal.failure())))
+                .subscribe();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (applying != null) {
+            applying.dispose();
+            scheduler.dispose();
+            applying = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return applying != null;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return properties.isEnabled();
+    }
+
+    // false until the first load finished
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Up to limit animes whose name starts with prefix, ignoring case, in name order.
+     */
+    public List<AnimeSuggestion> suggest(String prefix, int limit) {
+        String keyPrefix = AnimeNameIndex.key(prefix);
+        State current = state;
+        AnimeNameIndex index = current.index;
+        int next = index.lowerBound(keyPrefix);
+        Iterator<Map.Entry<DeltaKey, String>> delta = current.delta
+                .tailMap(new DeltaKey(keyPrefix, Integer.MIN_VALUE)).entrySet().iterator();
+        Map.Entry<DeltaKey, String> nextDelta = delta.hasNext() ? delta.next() : null;
+
+        List<AnimeSuggestion> suggestions = new ArrayList<>(limit);
+        while (suggestions.size() < limit) {
+            while (next < index.size() && current.masked.contains(index.id(next))) {
+                next++;
+            }
+            String indexed = next < index.size() ? index.name(next) : null;
+            String indexedKey = indexed == null ? null : AnimeNameIndex.key(indexed);
+            boolean fromIndex = indexedKey != null && indexedKey.startsWith(keyPrefix);
+            boolean fromDelta = nextDelta != null && nextDelta.getKey().key.startsWith(keyPrefix);
+            if (fromIndex && fromDelta) {
+                fromIndex = DELTA_ORDER.compare(new DeltaKey(indexedKey, index.id(next)), nextDelta.getKey()) < 0;
+            }
+            if (fromIndex) {
+                suggestions.add(new AnimeSuggestion(index.id(next++), indexed));
+            } else if (fromDelta) {
+                suggestions.add(new AnimeSuggestion(nextDelta.getKey().id, nextDelta.getValue()));
+                nextDelta = delta.hasNext() ? delta.next() : null;
+            } else {
+                break;
+            }
+        }
+        return suggestions;
+    }
+
+    private Mono<Void> apply(AnimeChange change) {
+        switch (change.getType()) {
+            case RESYNC:
+                return reload();
+            case DELETED:
+                return Mono.fromRunnable(() -> remove(change.getAnimeId())).subscribeOn(scheduler).then();
+            default:
+                // another instance's changes come without the anime
+                Mono<String> name = change.getAnime() != null
+                        ? Mono.just(change.getAnime().getName())
+                        : animeRepository.findById(change.getAnimeId().intValue()).map(Anime::getName);
+                return name.publishOn(scheduler)
+                        .doOnNext(changed -> put(change.getAnimeId(), changed))
+                        .switchIfEmpty(Mono.fromRunnable(() -> remove(change.getAnimeId())))
+                        .then();
+        }
+    }
+
+    private Mono<Void> reload() {
+        long start = System.nanoTime();
+        return animeRepository.findAll()
+                .map(anime -> new AnimeSuggestion(anime.getId(), anime.getName()))
+                .collectList()
+                .publishOn(scheduler)
+                .doOnNext(animes -> {
+                    state = new State(AnimeNameIndex.of(animes));
+                    ready = true;
+                    log.info("Autocomplete index loaded {} names ({} bytes) in {} ms", animes.size(),
+                            state.memoryBytes(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+                })
+                .then();
+    }
+
+    private void put(int id, String name) {
+        State current = state;
+        DeltaKey key = new DeltaKey(AnimeNameIndex.key(name), id);
+        current.delta.put(key, name);
+        DeltaKey previous = current.byId.put(id, key);
+        if (previous != null && !previous.equals(key)) {
+            current.delta.remove(previous);
+        }
+        current.masked.add(id);
+        compactIfFull(current);
+    }
+
+    private void remove(int id) {
+        State current = state;
+        current.masked.add(id);
+        DeltaKey previous = current.byId.remove(id);
+        if (previous != null) {
+            current.delta.remove(previous);
+        }
+        compactIfFull(current);
+    }
+
+    private void compactIfFull(State current) {
+        if (current.byId.size() + current.masked.size() < properties.getMaxDeltaSize()) {
+            return;
+        }
+        List<AnimeSuggestion> animes = new ArrayList<>(current.size());
+        for (int i = 0; i < current.index.size(); i++) {
+            if (!current.masked.contains(current.index.id(i))) {
+                animes.add(new AnimeSuggestion(current.index.id(i), current.index.name(i)));
+            }
+        }
+        current.delta.forEach((key, name) -> animes.add(new AnimeSuggestion(key.id, name)));
+        state = new State(AnimeNameIndex.of(animes));
+    }
+
+    private static class State {
+        private final AnimeNameIndex index;
+        private final ConcurrentSkipListMap<DeltaKey, String> delta = new ConcurrentSkipListMap<>(DELTA_ORDER);
+        private final Map<Integer, DeltaKey> byId = new ConcurrentHashMap<>();
+        // ids whose entry in index is outdated, either deleted or replaced by one in delta
+        private final Set<Integer> masked = ConcurrentHashMap.newKeySet();
+
+        State(AnimeNameIndex index) {
+            this.index = index;
+        }
+
+        // masked also holds created ids the index never had, close enough for a gauge
+        int size() {
+            return index.size() - masked.size() + byId.size();
+        }
+
+        long memoryBytes() {
+            long delta = 0;
+            for (Map.Entry<DeltaKey, String> entry : this.delta.entrySet()) {
+                delta += DELTA_ENTRY_BYTES + 2L * entry.getValue().length() + 2L * entry.getKey().key.length();
+            }
+            return index.memoryBytes() + delta + 64L * masked.size();
+        }
+    }
+
+    @AllArgsConstructor
+    private static class DeltaKey {
+        private final String key;
+        private final int id;
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof DeltaKey && ((DeltaKey) other).id == id && ((DeltaKey) other).key.equals(key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + id;
+        }
+    }
+}
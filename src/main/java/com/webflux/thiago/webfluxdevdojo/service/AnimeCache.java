@@ -0,0 +1,87 @@
+package com.webflux.thiago.webfluxdevdojo.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeCacheProperties;
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+@Component
+public class AnimeCache {
+    private final AnimeCacheProperties properties;
+    // Optional.empty() marks an id that does not exist, kept for notFoundTimeToLive only
+    private final AsyncCache<Integer, Optional<Anime>> animes;
+
+    public AnimeCache(AnimeCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.animes = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new FoundOrNotFoundExpiry())
+                .recordStats()
+                .<Integer, Optional<Anime>>buildAsync(), "animes");
+    }
+
+    public Mono<Anime> get(int id, IntFunction<Mono<Anime>> loader) {
+        if (!properties.isEnabled()) {
+            return loader.apply(id);
+        }
+        // concurrent misses for the same id share one load; the copy keeps a cancelled
+        // subscriber from cancelling the shared future
+        return Mono.defer(() -> Mono.fromFuture(animes.get(id, (key, executor) -> loader.apply(key)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .toFuture())
+                        .thenApply(Function.identity())))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    public void put(Anime anime) {
+        if (properties.isEnabled() && anime.getId() != null) {
+            animes.put(anime.getId(), CompletableFuture.completedFuture(Optional.of(anime)));
+        }
+    }
+
+    public void invalidate(int id) {
+        animes.synchronous().invalidate(id);
+    }
+
+    public void invalidateAll(Iterable<Integer> ids) {
+        animes.synchronous().invalidateAll(ids);
+    }
+
+    public void invalidateAll() {
+        animes.synchronous().invalidateAll();
+    }
+
+    public void invalidateBetween(int from, int to) {
+        animes.asMap().keySet().removeIf(id -> id >= from && id <= to);
+    }
+
+    private class FoundOrNotFoundExpiry implements Expiry<Integer, Optional<Anime>> {
+        @Override
+        public long expireAfterCreate(Integer key, Optional<Anime> value, long currentTime) {
+            return value.isPresent()
+                    ? properties.getTimeToLive().toNanos()
+                    : properties.getNotFoundTimeToLive().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(Integer key, Optional<Anime> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Integer key, Optional<Anime> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.webflux.thiago.webfluxdevdojo.service;
+
+import com.webflux.thiago.webfluxdevdojo.config.AnimeChangeStreamProperties;
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeChange;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Collection;
+
+/**
+ * In-memory feed of anime changes behind GET /animes/changes. A replay sink keeps the last
+ * retainedEvents for resuming; each subscriber drains it into its own bounded buffer, so a
+ * slow one hits the overflow strategy instead of pinning sink memory.
+ * <p>
+ * Change ids count from 1 on every start, so the SSE ids carry this instance's epoch as
+ * epoch-id: a Last-Event-ID from before a restart, or from another instance, gets a RESYNC
+ * instead of being read as a position in this feed.
+ */
+@Component
+@Slf4j
+public class AnimeChangeStream {
+    private final AnimeChangeStreamProperties properties;
+    private final Sinks.Many<AnimeChange> sink;
+    // changes made by this instance only, what ClusterNotifications forwards to the others
+    private final Sinks.Many<AnimeChange> localSink = Sinks.many().multicast().directBestEffort();
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    // guarded by this, so ids enter the sink in order
+    private long lastId;
+
+    public AnimeChangeStream(AnimeChangeStreamProperties properties) {
+        this.properties = properties;
+        this.sink = Sinks.many().replay().limit(properties.getRetainedEvents());
+    }
+
+    /**
+     * Live changes after lastEventId, replaying the retained ones newer than it; null starts
+     * from now. A resume point that already left the window, or that this feed never reached,
+     * gets a RESYNC first.
+     */
+    public Flux<AnimeChange> changes(Long lastEventId) {
+        return Flux.defer(() -> {
+            long after;
+            boolean resync;
+            synchronized (this) {
+                long oldestRetained = Math.max(1, lastId - properties.getRetainedEvents() + 1);
+                if (lastEventId == null || lastEventId > lastId) {
+                    after = lastId;
+                    resync = lastEventId != null;
+                } else {
+                    after = Math.max(lastEventId, oldestRetained - 1);
+                    resync = lastEventId + 1 < oldestRetained;
+                }
+            }
+            Flux<AnimeChange> changes = sink.asFlux()
+                    .filter(change -> change.getId() > after)
+                    .onBackpressureBuffer(properties.getSubscriberBufferSize(),
+                            dropped -> log.debug("Change {} dropped for a slow subscriber", dropped.getId()),
+                            properties.getOverflowStrategy());
+            if (resync) {
+                return changes.startWith(AnimeChange.builder().id(after).type(AnimeChange.Type.RESYNC).build());
+            }
+            return changes;
+        });
+    }
+
+    /**
+     * changes() as server-sent events, with heartbeat comments while idle.
+     */
+    public Flux<ServerSentEvent<AnimeChange>> events(String lastEventId) {
+        ServerSentEvent<AnimeChange> heartbeat = ServerSentEvent.<AnimeChange>builder().comment("heartbeat").build();
+        ServerSentEvent<AnimeChange> end = ServerSentEvent.<AnimeChange>builder().build();
+        Flux<ServerSentEvent<AnimeChange>> events = changes(resumePoint(lastEventId))
+                .map(change -> ServerSentEvent.builder(change)
+                        .id(eventId(change.getId()))
+                        .event(change.getType().name().toLowerCase())
+                        .build())
+                // an overflowing subscriber is closed; its EventSource reconnects and resumes from the window
+                .onErrorResume(Exceptions::isOverflow, e -> Flux.empty())
+                .concatWith(Mono.just(end));
+        // prefetch 1 so subscriberBufferSize stays the bound on what a slow client holds
+        return Flux.merge(1, events, Flux.interval(properties.getHeartbeatInterval()).map(tick -> heartbeat))
+                .takeWhile(event -> event != end);
+    }
+
+    String eventId(long changeId) {
+        return epoch + "-" + changeId;
+    }
+
+    // an id of another epoch, or not one of ours, is treated as ahead of this feed, which resyncs
+    private Long resumePoint(String lastEventId) {
+        if (lastEventId == null) {
+            return null;
+        }
+        String prefix = epoch + "-";
+        if (lastEventId.startsWith(prefix)) {
+            try {
+                return Long.parseLong(lastEventId.substring(prefix.length()));
+            } catch (NumberFormatException ignored) {
+                // falls through to a resync
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public Flux<AnimeChange> localChanges() {
+        return localSink.asFlux();
+    }
+
+    public Mono<Void> created(Collection<Anime> animes) {
+        return afterCommit(() -> animes.forEach(anime -> publish(AnimeChange.Type.CREATED, anime.getId(), anime)));
+    }
+
+    public Mono<Void> updated(Anime anime) {
+        return afterCommit(() -> publish(AnimeChange.Type.UPDATED, anime.getId(), anime));
+    }
+
+    public Mono<Void> deleted(Collection<Integer> animeIds) {
+        return afterCommit(() -> animeIds.forEach(animeId -> publish(AnimeChange.Type.DELETED, animeId, null)));
+    }
+
+    public Mono<Void> resync() {
+        return afterCommit(() -> publish(AnimeChange.Type.RESYNC, null, null));
+    }
+
+    // changes another instance made, already committed there; anime is null, clients refetch by animeId
+    public synchronized void publishRemote(Collection<AnimeChange> changes) {
+        changes.forEach(change -> emit(change.getType(), change.getAnimeId(), null));
+    }
+
+    private synchronized void publish(AnimeChange.Type type, Integer animeId, Anime anime) {
+        AnimeChange change = emit(type, animeId, anime);
+        // nobody listens when cluster notifications are off, so a failure here is expected
+        localSink.tryEmitNext(change);
+    }
+
+    private AnimeChange emit(AnimeChange.Type type, Integer animeId, Anime anime) {
+        AnimeChange change = new AnimeChange(++lastId, type, animeId, anime);
+        Sinks.EmitResult result = sink.tryEmitNext(change);
+        if (result.isFailure()) {
+            log.warn("Change {} {} for anime {} not published: {}", lastId, type, animeId, result);
+        }
+        return change;
+    }
+
+    // a rolled back saveAll must not announce (or cache, see AnimeService) rows nobody can read
+    static Mono<Void> afterCommit(Runnable publish) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .flatMap(manager -> {
+                    if (!manager.isSynchronizationActive()) {
+                        return Mono.fromRunnable(publish);
+                    }
+                    manager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public Mono<Void> afterCommit() {
+                            return Mono.fromRunnable(publish);
+                        }
+                    });
+                    return Mono.<Void>empty();
+                })
+                .onErrorResume(NoTransactionException.class, e -> Mono.fromRunnable(publish))
+                .then();
+    }
+}
@@ -1,58 +1,292 @@
 package com.webflux.thiago.webfluxdevdojo.service;
 
+import com.webflux.thiago.webfluxdevdojo.config.AnimeBatchProperties;
 import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeBatchAck;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeChange;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeDeleteAck;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimePage;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeSearchMode;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeSuggestion;
 import com.webflux.thiago.webfluxdevdojo.repository.AnimeRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.util.internal.StringUtil;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.webflux.thiago.webfluxdevdojo.monitoring.ReactorTracing.checkpoint;
 
 @Service
-@RequiredArgsConstructor
+@Slf4j
+@Timed(value = "anime.service", histogram = true)
 public class AnimeService {
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_QUERY_LENGTH = 255;
+    public static final int MAX_SUGGESTIONS = 100;
+    // anime.name is VARCHAR(255); checked up front so a long name fails a batch before any chunk is written
+    public static final int MAX_NAME_LENGTH = 255;
+    // revisionReads has a single key, the revision is one for the whole collection
+    private static final int COLLECTION = 0;
+
     private final AnimeRepository animeRepository;
+    private final AnimeCache animeCache;
+    private final AnimeBatchProperties animeBatchProperties;
+    private final AnimeChangeStream animeChangeStream;
+    private final AnimeAutocomplete animeAutocomplete;
+    // bursts of GET /animes/{id} and conditional GET /animes share one query per id
+    private final SingleFlight<Integer, Anime> findByIdReads;
+    private final SingleFlight<Integer, Long> revisionReads;
+
+    public AnimeService(AnimeRepository animeRepository, AnimeCache animeCache, AnimeBatchProperties animeBatchProperties,
+                        AnimeChangeStream animeChangeStream, AnimeAutocomplete animeAutocomplete, MeterRegistry meterRegistry) {
+        this.animeRepository = animeRepository;
+        this.animeCache = animeCache;
+        this.animeBatchProperties = animeBatchProperties;
+        this.animeChangeStream = animeChangeStream;
+        this.animeAutocomplete = animeAutocomplete;
+        this.findByIdReads = new SingleFlight<>("anime.findById", meterRegistry);
+        this.revisionReads = new SingleFlight<>("anime.findRevision", meterRegistry);
+    }
 
     public Flux<Anime> findAll(){
-        return animeRepository.findAll();
+        return checkpoint(animeRepository.findAll(), "AnimeService.findAll");
+    }
+
+    public Mono<AnimePage> findPage(int after, int limit){
+        if(limit < 1 || limit > MAX_PAGE_SIZE){
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        return checkpoint(animeRepository.findPageAfter(after, limit)
+                .collectList()
+                .map(animes -> new AnimePage(animes,
+                        animes.size() < limit ? null : animes.get(animes.size() - 1).getId())), "AnimeService.findPage");
     }
+
     public Mono<Anime> findById(int id){
-        return animeRepository.findById(id)
-                .switchIfEmpty(responseStatusNotFoundException());
+        // with the cache on, Caffeine already shares a miss; the single flight covers it being off
+        return checkpoint(animeCache.get(id, key -> findByIdReads.execute(key, () -> animeRepository.findById(key)))
+                .switchIfEmpty(responseStatusNotFoundException()), "AnimeService.findById");
+    }
+
+    public Flux<Anime> search(String query, AnimeSearchMode mode, int limit){
+        if(query == null || query.isBlank() || query.length() > MAX_QUERY_LENGTH){
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "q must have between 1 and " + MAX_QUERY_LENGTH + " characters"));
+        }
+        if(limit < 1 || limit > MAX_PAGE_SIZE){
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        Flux<Anime> found = mode == AnimeSearchMode.PREFIX
+                ? animeRepository.searchByNameLike(escapeLike(query.strip()) + "%", limit)
+                : animeRepository.searchByNameFullText(query, limit);
+        return checkpoint(found, "AnimeService.search");
+    }
+
+    // answered from memory; only while the index is off or still loading does it cost a query
+    public Mono<List<AnimeSuggestion>> autocomplete(String prefix, int limit){
+        if(prefix == null || prefix.isBlank() || prefix.length() > MAX_QUERY_LENGTH){
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "q must have between 1 and " + MAX_QUERY_LENGTH + " characters"));
+        }
+        if(limit < 1 || limit > MAX_SUGGESTIONS){
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + MAX_SUGGESTIONS));
+        }
+        if(!animeAutocomplete.isReady()){
+            return search(prefix, AnimeSearchMode.PREFIX, limit)
+                    .map(anime -> new AnimeSuggestion(anime.getId(), anime.getName()))
+                    .collectList();
+        }
+        return Mono.fromSupplier(() -> animeAutocomplete.suggest(prefix.strip(), limit));
+    }
+
+    // the query is a literal prefix, not a pattern; backslash is the default LIKE escape in Postgres and H2
+    private static String escapeLike(String literal){
+        return literal.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public Mono<Long> findRevision(){
+        return checkpoint(revisionReads.execute(COLLECTION, animeRepository::findRevision), "AnimeService.findRevision");
+    }
+
+    public Flux<ServerSentEvent<AnimeChange>> changes(String lastEventId){
+        return animeChangeStream.events(lastEventId);
     }
 
     public <T> Mono<T> responseStatusNotFoundException(){
         return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Anime not found"));
     }
 
+    private static <T> Mono<T> animeMissing(HttpStatus status){
+        return Mono.error(new ResponseStatusException(status, "Anime not found"));
+    }
+
+    // id, version and updatedAt are the database's: a client-sent version would make save() an UPDATE
     public Mono<Anime> save(Anime anime){
-        return animeRepository.save(anime);
+        return checkpoint(animeRepository.save(anime.withId(null).withVersion(null).withUpdatedAt(null))
+                .doOnNext(animeCache::put)
+                .doOnNext(saved -> forgetInFlightReads(saved.getId()::equals))
+                .flatMap(saved -> animeChangeStream.created(List.of(saved)).thenReturn(saved)), "AnimeService.save");
     }
 
+    // one UPDATE round trip; an anime carrying a version only applies on top of it, 409 otherwise
     public Mono<Void> update(Anime anime){
-        return findById(anime.getId())
-                .flatMap(animeFound -> animeRepository.save(anime.withId(animeFound.getId())))
-                .then();
+        return update(anime, bodyVersion(anime), HttpStatus.CONFLICT, HttpStatus.NOT_FOUND);
+    }
+
+    // applies only when the stored version is one of the If-Match versions, 412 otherwise
+    public Mono<Void> updateIfMatch(Anime anime, List<Integer> versions){
+        return update(anime, versions, HttpStatus.PRECONDITION_FAILED, HttpStatus.NOT_FOUND);
+    }
+
+    // If-Match: * matches any current version, so only a missing anime fails it, with 412 instead of 404
+    public Mono<Void> updateIfExists(Anime anime){
+        return update(anime, bodyVersion(anime), HttpStatus.CONFLICT, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    private static List<Integer> bodyVersion(Anime anime){
+        return anime.getVersion() == null ? null : List.of(anime.getVersion());
+    }
+
+    private Mono<Void> update(Anime anime, List<Integer> versions, HttpStatus versionMismatch, HttpStatus missing){
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        Mono<Integer> updated = versions == null
+                ? animeRepository.updateName(anime.getId(), anime.getName(), now)
+                : animeRepository.updateNameIfVersion(anime.getId(), versions, anime.getName(), now);
+        return checkpoint(updated
+                .flatMap(rows -> {
+                    if(rows > 0){
+                        animeCache.invalidate(anime.getId());
+                        forgetInFlightReads(anime.getId()::equals);
+                        Integer version = versions != null && versions.size() == 1 ? versions.get(0) + 1 : null;
+                        return animeChangeStream.updated(anime.withVersion(version).withUpdatedAt(now));
+                    }
+                    if(versions == null){
+                        return animeMissing(missing);
+                    }
+                    // only a failed conditional update pays for telling a missing anime from a stale version
+                    return animeRepository.existsById(anime.getId())
+                            .flatMap(exists -> exists
+                                    ? Mono.error(new ResponseStatusException(versionMismatch, "Anime was modified concurrently"))
+                                    : animeMissing(missing));
+                }), "AnimeService.update");
     }
 
     public Mono<Void> delete(int id){
-        return findById(id)
-                .flatMap(animeRepository::delete);
+        return checkpoint(animeRepository.removeById(id)
+                .flatMap(rows -> {
+                    animeCache.invalidate(id);
+                    forgetInFlightReads(readId -> readId == id);
+                    return rows > 0 ? animeChangeStream.deleted(List.of(id)) : responseStatusNotFoundException();
+                }), "AnimeService.delete");
     }
 
+    public Mono<AnimeDeleteAck> deleteAll(List<Integer> ids){
+        if(ids.isEmpty() || ids.size() > MAX_PAGE_SIZE){
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "ids must have between 1 and " + MAX_PAGE_SIZE + " elements"));
+        }
+        // the count does not say which ids existed, so a DELETED change goes out for each of them
+        return checkpoint(animeRepository.removeByIdIn(ids)
+                .flatMap(rows -> {
+                    animeCache.invalidateAll(ids);
+                    forgetInFlightReads(ids::contains);
+                    Mono<Void> published = rows > 0 ? animeChangeStream.deleted(ids) : Mono.empty();
+                    return published.thenReturn(new AnimeDeleteAck(rows));
+                }), "AnimeService.deleteAll");
+    }
 
+    public Mono<AnimeDeleteAck> deleteBetween(int from, int to){
+        if(from > to){
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be greater than to"));
+        }
+        return checkpoint(animeRepository.removeByIdBetween(from, to)
+                .flatMap(rows -> {
+                    animeCache.invalidateBetween(from, to);
+                    forgetInFlightReads(id -> id >= from && id <= to);
+                    Mono<Void> published = rows > 0 ? animeChangeStream.resync() : Mono.empty();
+                    return published.thenReturn(new AnimeDeleteAck(rows));
+                }), "AnimeService.deleteBetween");
+    }
+
+    @Transactional
     public Flux<Anime> saveAll(List<Anime> animes) {
-        return animeRepository.saveAll(animes)
-                .doOnNext(this::throwResponseStatusExceptionWhenEmptyName);
+        return checkpoint(Flux.defer(() -> {
+            animes.forEach(this::throwResponseStatusExceptionWhenInvalidName);
+            long start = System.nanoTime();
+            return Flux.fromIterable(animes)
+                    .buffer(animeBatchProperties.getChunkSize())
+                    .concatMap(this::insertChunk)
+                    .doOnComplete(() -> logThroughput(animes.size(), start));
+        }), "AnimeService.saveAll");
+    }
+
+    public Flux<AnimeBatchAck> saveStream(Flux<Anime> animes) {
+        return checkpoint(animes
+                .doOnNext(this::throwResponseStatusExceptionWhenInvalidName)
+                .buffer(animeBatchProperties.getChunkSize())
+                .index()
+                .flatMapSequential(chunk -> insertChunk(chunk.getT2())
+                                .map(Anime::getId)
+                                .collectList()
+                                .map(ids -> new AnimeBatchAck(chunk.getT1(), ids.size(), ids)),
+                        animeBatchProperties.getConcurrency()), "AnimeService.saveStream");
+    }
+
+    private Flux<Anime> insertChunk(List<Anime> animes) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        List<Anime> chunk = animes.stream()
+                .map(anime -> anime.withVersion(0).withUpdatedAt(now))
+                .collect(Collectors.toList());
+        return animeRepository.insertAll(chunk)
+                .collectList()
+                .map(ids -> {
+                    if(ids.size() != chunk.size()){
+                        throw new IllegalStateException("Expected " + chunk.size() + " generated ids but got " + ids.size());
+                    }
+                    forgetInFlightReads(ids::contains);
+                    return IntStream.range(0, chunk.size())
+                            .mapToObj(i -> chunk.get(i).withId(ids.get(i)))
+                            .collect(Collectors.toList());
+                })
+                // inside saveAll's transaction a later chunk can still roll these rows back, so they are
+                // cached and announced only after commit
+                .flatMapMany(saved -> AnimeChangeStream.afterCommit(() -> saved.forEach(animeCache::put))
+                        .then(animeChangeStream.created(saved))
+                        .thenMany(Flux.fromIterable(saved)));
+    }
+
+    // a read already in flight may have started before this write, later callers must not join it
+    private void forgetInFlightReads(Predicate<Integer> ids) {
+        findByIdReads.forgetIf(ids);
+        revisionReads.forget(COLLECTION);
+    }
+
+    private void logThroughput(int rows, long startNanos) {
+        long elapsedMicros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        log.info("Inserted {} animes in {} ms ({} rows/sec)",
+                rows, elapsedMicros / 1000, rows * 1_000_000L / elapsedMicros);
     }
 
-    public void throwResponseStatusExceptionWhenEmptyName(Anime anime){
-        if(StringUtil.isNullOrEmpty(anime.getName())){
+    public void throwResponseStatusExceptionWhenInvalidName(Anime anime){
+        if(StringUtil.isNullOrEmpty(anime.getName()) || anime.getName().length() > MAX_NAME_LENGTH){
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid name");
         }
     }
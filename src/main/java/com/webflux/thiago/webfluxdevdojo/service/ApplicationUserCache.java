@@ -0,0 +1,85 @@
+package com.webflux.thiago.webfluxdevdojo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webflux.thiago.webfluxdevdojo.config.ApplicationUserCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Optional;
+
+@Component
+public class ApplicationUserCache {
+    private final Cache<String, UserDetails> users;
+    // raw passwords are never kept, only a salted digest of the last one bcrypt accepted
+    private final Cache<String, VerifiedCredentials> credentials;
+    private final byte[] salt = new byte[16];
+
+    public ApplicationUserCache(ApplicationUserCacheProperties properties, MeterRegistry meterRegistry) {
+        this.users = CaffeineCacheMetrics.monitor(meterRegistry, newCache(properties), "applicationUsers");
+        this.credentials = CaffeineCacheMetrics.monitor(meterRegistry, newCache(properties), "verifiedCredentials");
+        new SecureRandom().nextBytes(salt);
+    }
+
+    private static <V> Cache<String, V> newCache(ApplicationUserCacheProperties properties) {
+        return Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTimeToLive())
+                .recordStats()
+                .build();
+    }
+
+    public Optional<UserDetails> findUser(String username) {
+        return Optional.ofNullable(users.getIfPresent(username));
+    }
+
+    public void putUser(UserDetails userDetails) {
+        users.put(userDetails.getUsername(), userDetails);
+    }
+
+    public Optional<Authentication> findAuthentication(String username, String password) {
+        VerifiedCredentials verified = credentials.getIfPresent(username);
+        if (verified == null || !MessageDigest.isEqual(verified.digest, digest(password))) {
+            return Optional.empty();
+        }
+        return Optional.of(verified.authentication);
+    }
+
+    public void putAuthentication(String username, String password, Authentication authentication) {
+        credentials.put(username, new VerifiedCredentials(digest(password), authentication));
+    }
+
+    public void evict(String username) {
+        users.invalidate(username);
+        credentials.invalidate(username);
+    }
+
+    public void evictAll() {
+        users.invalidateAll();
+        credentials.invalidateAll();
+    }
+
+    private byte[] digest(String password) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            messageDigest.update(salt);
+            return messageDigest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class VerifiedCredentials {
+        private final byte[] digest;
+        private final Authentication authentication;
+    }
+}
@@ -1,6 +1,7 @@
 package com.webflux.thiago.webfluxdevdojo.service;
 
 
+import com.webflux.thiago.webfluxdevdojo.domain.ApplicationUser;
 import com.webflux.thiago.webfluxdevdojo.repository.ApplicationUserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
@@ -13,9 +14,31 @@ import reactor.core.publisher.Mono;
 public class ApplicationUserService implements ReactiveUserDetailsService {
 
     private final ApplicationUserRepository applicationUserRepository;
+    private final ApplicationUserCache applicationUserCache;
+    private final ClusterNotifications clusterNotifications;
+
     @Override
     public Mono<UserDetails> findByUsername(String username) {
-        return applicationUserRepository.findByUsername(username)
-                .cast(UserDetails.class);
+        return Mono.justOrEmpty(applicationUserCache.findUser(username))
+                .switchIfEmpty(Mono.defer(() -> applicationUserRepository.findByUsername(username)
+                        .cast(UserDetails.class)
+                        .doOnNext(applicationUserCache::putUser)));
+    }
+
+    // a save may rename the user, so the old username is dropped along with everything else
+    public Mono<ApplicationUser> save(ApplicationUser applicationUser) {
+        return applicationUserRepository.save(applicationUser)
+                .doOnSuccess(saved -> {
+                    applicationUserCache.evictAll();
+                    clusterNotifications.allUsersChanged();
+                });
+    }
+
+    public Mono<Void> delete(ApplicationUser applicationUser) {
+        return applicationUserRepository.delete(applicationUser)
+                .doOnSuccess(unused -> {
+                    applicationUserCache.evict(applicationUser.getUsername());
+                    clusterNotifications.userChanged(applicationUser.getUsername());
+                });
     }
 }
@@ -0,0 +1,331 @@
+package com.webflux.thiago.webfluxdevdojo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webflux.thiago.webfluxdevdojo.config.ClusterNotificationProperties;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeChange;
+import com.webflux.thiago.webfluxdevdojo.domain.ClusterNotification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.api.PostgresqlResult;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Option;
+import io.r2dbc.spi.R2dbcNonTransientResourceException;
+import io.r2dbc.spi.R2dbcTransientResourceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the caches of instances running behind a load balancer coherent through PostgreSQL
+ * LISTEN/NOTIFY. Anime changes (published after commit by AnimeChangeStream) and user changes
+ * are coalesced per batchWindow and sent with pg_notify over the pool; a dedicated connection
+ * outside the pool LISTENs, drops what the other instances changed from AnimeCache and
+ * ApplicationUserCache and replays it into the local AnimeChangeStream.
+ * <p>
+ * Notifications sent while the listener is reconnecting are lost, so after a reconnect every
+ * cached entry is dropped and change stream clients get a RESYNC.
+ */
+@Component
+@Slf4j
+public class ClusterNotifications implements SmartLifecycle {
+    private final ClusterNotificationProperties properties;
+    private final R2dbcProperties r2dbcProperties;
+    private final DatabaseClient databaseClient;
+    private final ObjectMapper objectMapper;
+    private final AnimeCache animeCache;
+    private final ApplicationUserCache applicationUserCache;
+    private final AnimeChangeStream animeChangeStream;
+    private final String node = UUID.randomUUID().toString();
+    private final Sinks.Many<ClusterNotification> userChanges = Sinks.many().multicast().directBestEffort();
+    // a batch was dropped or not sent, the next one sent stands in for it as "everything changed"
+    private final AtomicBoolean overflowed = new AtomicBoolean();
+    private final Counter sent;
+    private final Counter received;
+    private final Counter reconnects;
+    private Disposable sending;
+    private Disposable listening;
+    // a LISTEN succeeded before, so the next one follows a gap in which notifications were lost
+    private volatile boolean listened;
+
+    public ClusterNotifications(ClusterNotificationProperties properties, R2dbcProperties r2dbcProperties,
+                                DatabaseClient databaseClient, ObjectMapper objectMapper, AnimeCache animeCache,
+                                ApplicationUserCache applicationUserCache, AnimeChangeStream animeChangeStream,
+                                MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.r2dbcProperties = r2dbcProperties;
+        this.databaseClient = databaseClient;
+        this.objectMapper = objectMapper;
+        this.animeCache = animeCache;
+        this.applicationUserCache = applicationUserCache;
+        this.animeChangeStream = animeChangeStream;
+        this.sent = Counter.builder("cluster.notifications.sent")
+                .description("NOTIFYs sent to the other instances, each carrying a coalesced batch of changes")
+                .register(meterRegistry);
+        this.received = Counter.builder("cluster.notifications.received")
+                .description("Notifications received from the other instances")
+                .register(meterRegistry);
+        this.reconnects = Counter.builder("cluster.notifications.reconnects")
+                .description("LISTEN connections re-established, each one dropped every cached entry")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!properties.isEnabled() || isRunning()) {
+            return;
+        }
+        sending = notifications(Flux.merge(animeChangeStream.localChanges().map(ClusterNotifications::fromAnimeChange), userChanges.asFlux()))
+                .concatMap(this::send, 1)
+                .subscribe();
+        // spring.r2dbc.properties carries options such as sslMode, the pool's connections get them too
+        ConnectionFactory listenerConnectionFactory = ConnectionFactoryBuilder.withUrl(r2dbcProperties.getUrl())
+                .username(r2dbcProperties.getUsername())
+                .password(r2dbcProperties.getPassword())
+                .configure(options -> r2dbcProperties.getProperties()
+                        .forEach((key, value) -> options.option(Option.valueOf(key), value)))
+                .build();
+        listening = Flux.usingWhen(listenerConnectionFactory.create(), this::listen, Connection::close)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, properties.getReconnectDelay())
+                        .maxBackoff(properties.getMaxReconnectDelay())
+                        .filter(e -> !(e instanceof R2dbcNonTransientResourceException))
+                        .doBeforeRetry(signal -> log.warn("Notification connection lost, reconnecting: {}", signal.failure().toString())))
+                .subscribe(this::dispatch, this::listenerFailed);
+        log.info("Cluster notifications on channel '{}' as node {}", properties.getChannel(), node);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (sending != null) {
+            sending.dispose();
+            listening.dispose();
+            sending = null;
+            listening = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return sending != null;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return properties.isEnabled();
+    }
+
+    // only non-transient errors get here, sending is pointless as well then
+    private synchronized void listenerFailed(Throwable error) {
+        log.error("Cluster notifications stopped, caches are only invalidated locally", error);
+        if (sending != null) {
+            sending.dispose();
+            sending = null;
+            listening = null;
+        }
+    }
+
+    // prefetch 1 down to send, so maxPendingBatches is what queues up while the database is slow
+    Flux<ClusterNotification> notifications(Flux<ClusterNotification> changes) {
+        return changes
+                .bufferTimeout(properties.getBatchSize(), properties.getBatchWindow())
+                .onBackpressureBuffer(properties.getMaxPendingBatches(),
+                        dropped -> overflowed.set(true), BufferOverflowStrategy.DROP_LATEST)
+                .concatMapIterable(batch -> coalesce(objectMapper, node, collapseIfOverflowed(batch), properties.getMaxPayloadBytes()), 1);
+    }
+
+    private List<ClusterNotification> collapseIfOverflowed(List<ClusterNotification> batch) {
+        if (!overflowed.getAndSet(false)) {
+            return batch;
+        }
+        log.warn("More than {} cluster notification batches pending, telling the others everything changed",
+                properties.getMaxPendingBatches());
+        List<ClusterNotification> collapsed = new ArrayList<>(batch);
+        collapsed.add(ClusterNotification.builder().allAnimes(true).allUsers(true).build());
+        return collapsed;
+    }
+
+    public void userChanged(String username) {
+        emitUserChange(ClusterNotification.builder().users(List.of(username)).build());
+    }
+
+    public void allUsersChanged() {
+        emitUserChange(ClusterNotification.builder().allUsers(true).build());
+    }
+
+    private synchronized void emitUserChange(ClusterNotification notification) {
+        // nobody listens when cluster notifications are off, so a failure here is expected
+        userChanges.tryEmitNext(notification);
+    }
+
+    Mono<Void> send(ClusterNotification notification) {
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(notification))
+                .flatMap(payload -> databaseClient.sql("SELECT pg_notify(:channel, :payload)")
+                        .bind("channel", properties.getChannel())
+                        .bind("payload", payload)
+                        .then())
+                .doOnSuccess(unused -> sent.increment())
+                // the following batches must still go out, the next one tells the others everything changed
+                .onErrorResume(e -> {
+                    log.warn("Cluster notification not sent", e);
+                    overflowed.set(true);
+                    return Mono.empty();
+                });
+    }
+
+    private Flux<String> listen(Connection connection) {
+        if (!(connection instanceof PostgresqlConnection)) {
+            return Flux.error(new R2dbcNonTransientResourceException(
+                    "LISTEN/NOTIFY needs PostgreSQL, got " + connection.getClass().getName()));
+        }
+        PostgresqlConnection postgresqlConnection = (PostgresqlConnection) connection;
+        // quoted so the name matches pg_notify's exactly, which does not fold case
+        return postgresqlConnection.createStatement("LISTEN \"" + properties.getChannel().replace("\"", "\"\"") + "\"")
+                .execute()
+                .flatMap(PostgresqlResult::getRowsUpdated)
+                .then(Mono.fromRunnable(this::listening))
+                .thenMany(postgresqlConnection.getNotifications())
+                .map(Notification::getParameter)
+                .concatWith(Mono.error(() -> new R2dbcTransientResourceException("Notification connection closed")));
+    }
+
+    private void listening() {
+        log.info("Listening for cluster notifications on channel '{}'", properties.getChannel());
+        if (listened) {
+            reconnects.increment();
+            animeCache.invalidateAll();
+            applicationUserCache.evictAll();
+            animeChangeStream.publishRemote(List.of(AnimeChange.builder().type(AnimeChange.Type.RESYNC).build()));
+        }
+        listened = true;
+    }
+
+    void dispatch(String payload) {
+        ClusterNotification notification;
+        try {
+            notification = objectMapper.readValue(payload, ClusterNotification.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed cluster notification {}", payload, e);
+            return;
+        }
+        if (node.equals(notification.getNode())) {
+            return;
+        }
+        received.increment();
+        if (notification.isAllAnimes()) {
+            animeCache.invalidateAll();
+            animeChangeStream.publishRemote(List.of(AnimeChange.builder().type(AnimeChange.Type.RESYNC).build()));
+        } else if (notification.getAnimes() != null && !notification.getAnimes().isEmpty()) {
+            animeCache.invalidateAll(notification.getAnimes().stream().map(AnimeChange::getAnimeId).collect(Collectors.toList()));
+            animeChangeStream.publishRemote(notification.getAnimes());
+        }
+        if (notification.isAllUsers()) {
+            applicationUserCache.evictAll();
+        } else if (notification.getUsers() != null) {
+            notification.getUsers().forEach(applicationUserCache::evict);
+        }
+    }
+
+    private static ClusterNotification fromAnimeChange(AnimeChange change) {
+        if (change.getType() == AnimeChange.Type.RESYNC) {
+            return ClusterNotification.builder().allAnimes(true).build();
+        }
+        return ClusterNotification.builder()
+                .animes(List.of(AnimeChange.builder().type(change.getType()).animeId(change.getAnimeId()).build()))
+                .build();
+    }
+
+    /**
+     * Merges a batch into as few notifications as fit maxPayloadBytes once serialized: the last
+     * change of an anime wins, and a resync or "all users" covers every single change of its kind.
+     */
+    static List<ClusterNotification> coalesce(ObjectMapper objectMapper, String node, List<ClusterNotification> batch,
+                                              int maxPayloadBytes) {
+        boolean allAnimes = false;
+        boolean allUsers = false;
+        Map<Integer, AnimeChange.Type> animes = new LinkedHashMap<>();
+        Set<String> users = new LinkedHashSet<>();
+        for (ClusterNotification notification : batch) {
+            allAnimes |= notification.isAllAnimes();
+            allUsers |= notification.isAllUsers();
+            if (notification.getAnimes() != null) {
+                notification.getAnimes().forEach(change -> animes.put(change.getAnimeId(), change.getType()));
+            }
+            if (notification.getUsers() != null) {
+                users.addAll(notification.getUsers());
+            }
+        }
+        List<AnimeChange> changes = allAnimes ? List.of() : animes.entrySet().stream()
+                .map(anime -> AnimeChange.builder().type(anime.getValue()).animeId(anime.getKey()).build())
+                .collect(Collectors.toList());
+
+        List<ClusterNotification> notifications = new ArrayList<>();
+        notifications.add(notification(node, allAnimes, allUsers));
+        int size = serializedSize(objectMapper, notifications.get(0));
+        size = fill(objectMapper, node, notifications, size, changes, ClusterNotification::getAnimes, maxPayloadBytes);
+        fill(objectMapper, node, notifications, size, allUsers ? List.of() : new ArrayList<>(users),
+                ClusterNotification::getUsers, maxPayloadBytes);
+        return notifications;
+    }
+
+    // an element costs its own JSON plus a comma, so the payload size is summed instead of serialized again;
+    // usernames are at most 100 characters, so every element fits an empty notification
+    private static <T> int fill(ObjectMapper objectMapper, String node, List<ClusterNotification> notifications, int size,
+                                List<T> elements, Function<ClusterNotification, List<T>> list, int maxPayloadBytes) {
+        int emptySize = serializedSize(objectMapper, notification(node, false, false));
+        ClusterNotification last = notifications.get(notifications.size() - 1);
+        for (T element : elements) {
+            int elementSize = serializedSize(objectMapper, element);
+            int added = list.apply(last).isEmpty() ? elementSize : elementSize + 1;
+            if (size + added > maxPayloadBytes && size > emptySize) {
+                last = notification(node, false, false);
+                notifications.add(last);
+                size = emptySize;
+                added = elementSize;
+            }
+            list.apply(last).add(element);
+            size += added;
+        }
+        return size;
+    }
+
+    private static ClusterNotification notification(String node, boolean allAnimes, boolean allUsers) {
+        return ClusterNotification.builder()
+                .node(node)
+                .allAnimes(allAnimes)
+                .animes(new ArrayList<>())
+                .allUsers(allUsers)
+                .users(new ArrayList<>())
+                .build();
+    }
+
+    private static int serializedSize(ObjectMapper objectMapper, Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value).length;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + value, e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.webflux.thiago.webfluxdevdojo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent reads of the same key: while a read is in flight, later callers join it
+ * instead of starting their own, and the first call after it terminates starts a new one. Nothing
+ * is kept once the read completes, so unlike a cache it never answers with a result that was
+ * read before the call started, apart from the joined read itself.
+ * <p>
+ * The shared read is cancelled only once every caller has cancelled, and runs with the Reactor
+ * context of the caller that started it. Counts calls in singleflight.calls (result executed or
+ * shared, shared / all is the dedup ratio) and in-flight reads in singleflight.inflight.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter shared;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.executed = Counter.builder("singleflight.calls")
+                .description("Reads started, or joined while the same read was in flight")
+                .tags("name", name, "result", "executed")
+                .register(meterRegistry);
+        this.shared = Counter.builder("singleflight.calls")
+                .description("Reads started, or joined while the same read was in flight")
+                .tags("name", name, "result", "shared")
+                .register(meterRegistry);
+        Gauge.builder("singleflight.inflight", inFlight, Map::size)
+                .description("Distinct reads in flight")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public Mono<V> execute(K key, Supplier<? extends Mono<V>> read) {
+        return Mono.defer(() -> {
+            Flight existing = inFlight.get(key);
+            if (existing == null) {
+                Flight flight = new Flight(key, read);
+                existing = inFlight.putIfAbsent(key, flight);
+                if (existing == null) {
+                    executed.increment();
+                    return flight.result;
+                }
+            }
+            shared.increment();
+            return existing.result;
+        });
+    }
+
+    // callers after this start a new read, for when a write may have overtaken the one in flight;
+    // callers that already joined it still get its result
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public void forgetIf(Predicate<? super K> keys) {
+        inFlight.keySet().removeIf(keys);
+    }
+
+    private class Flight {
+        private final Mono<V> result;
+
+        Flight(K key, Supplier<? extends Mono<V>> read) {
+            // refCount: a caller cancelling leaves the read running for the others, the last one cancels it
+            this.result = Mono.defer(read)
+                    .doFinally(signal -> inFlight.remove(key, this))
+                    .flux()
+                    .publish()
+                    .refCount()
+                    .singleOrEmpty();
+        }
+    }
+}
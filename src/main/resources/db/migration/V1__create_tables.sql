@@ -0,0 +1,13 @@
+-- tables that existed before migrations were introduced, so IF NOT EXISTS keeps V1 safe on those databases
+CREATE TABLE IF NOT EXISTS anime (
+    id   SERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS application_user (
+    id          SERIAL PRIMARY KEY,
+    name        VARCHAR(255) NOT NULL,
+    username    VARCHAR(100) NOT NULL,
+    password    VARCHAR(150) NOT NULL,
+    authorities VARCHAR(150) NOT NULL
+);
@@ -0,0 +1,53 @@
+-- per-row validators for ETag / Last-Modified and optimistic locking
+ALTER TABLE anime ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE anime ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now();
+
+-- collection revision, the collection ETag is read from here instead of scanning anime.
+-- Writers bump one of 64 slot rows picked by their backend pid, so two connections only wait on
+-- each other's row lock when their pids share a slot, and only when the statement changed rows.
+-- The revision is the sum of the slots: each slot only grows and is updated inside the writing
+-- transaction, so the sum changes with every commit and a reader never sees it ahead of the rows.
+CREATE TABLE anime_revision (
+    id       SMALLINT PRIMARY KEY CHECK (id BETWEEN 0 AND 63),
+    revision BIGINT   NOT NULL
+);
+INSERT INTO anime_revision (id, revision)
+SELECT slot, 0 FROM generate_series(0, 63) slot;
+
+-- Postgres allows transition tables only on single-event triggers, hence one trigger per event
+-- sharing this function; a branch only reads the transition table its trigger declares.
+-- A statement that changed nothing (a 0-row conditional update, a delete of missing ids) leaves
+-- every client's collection ETag valid.
+CREATE FUNCTION anime_bump_revision() RETURNS trigger
+    LANGUAGE plpgsql
+    SET search_path FROM CURRENT AS
+$$
+DECLARE
+    changed BOOLEAN;
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        SELECT EXISTS (SELECT 1 FROM new_rows) INTO changed;
+    ELSIF TG_OP = 'TRUNCATE' THEN
+        changed := true;
+    ELSE
+        SELECT EXISTS (SELECT 1 FROM old_rows) INTO changed;
+    END IF;
+    IF changed THEN
+        UPDATE anime_revision SET revision = revision + 1 WHERE id = pg_backend_pid() % 64;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER anime_revision_bump_insert
+    AFTER INSERT ON anime REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE PROCEDURE anime_bump_revision();
+CREATE TRIGGER anime_revision_bump_update
+    AFTER UPDATE ON anime REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE PROCEDURE anime_bump_revision();
+CREATE TRIGGER anime_revision_bump_delete
+    AFTER DELETE ON anime REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE PROCEDURE anime_bump_revision();
+CREATE TRIGGER anime_revision_bump_truncate
+    AFTER TRUNCATE ON anime
+    FOR EACH STATEMENT EXECUTE PROCEDURE anime_bump_revision();
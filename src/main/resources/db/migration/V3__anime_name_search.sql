@@ -0,0 +1,8 @@
+-- GET /animes/search. Both indexes are on expressions, the queries in AnimeRepository must repeat them verbatim.
+
+-- prefix mode: C collation lets LIKE 'abc%' use a plain btree range scan, and with id appended the
+-- index already returns rows in ORDER BY order, so LIMIT stops early without sorting all matches
+CREATE INDEX anime_name_prefix_idx ON anime ((lower(name) COLLATE "C"), id);
+
+-- fulltext mode: 'simple' does not stem, names are titles in many languages rather than English prose
+CREATE INDEX anime_name_fulltext_idx ON anime USING gin (to_tsvector('simple', name));
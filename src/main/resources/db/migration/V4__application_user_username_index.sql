@@ -0,0 +1,16 @@
+-- every login runs findByUsername, which was a sequential scan. Unique because the lookup expects
+-- one row anyway, so fail here with the offending names rather than on a later login.
+DO
+$$
+DECLARE
+    duplicates TEXT;
+BEGIN
+    SELECT string_agg(username, ', ') INTO duplicates
+    FROM (SELECT username FROM application_user GROUP BY username HAVING count(*) > 1) duplicated;
+    IF duplicates IS NOT NULL THEN
+        RAISE EXCEPTION 'application_user has duplicate usernames (%), remove them and restart', duplicates;
+    END IF;
+END
+$$;
+
+CREATE UNIQUE INDEX application_user_username_uk ON application_user (username);
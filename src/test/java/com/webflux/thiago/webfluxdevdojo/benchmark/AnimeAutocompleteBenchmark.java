@@ -0,0 +1,91 @@
+package com.webflux.thiago.webfluxdevdojo.benchmark;
+
+import com.webflux.thiago.webfluxdevdojo.config.AnimeAutocompleteProperties;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeChangeStreamProperties;
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeSuggestion;
+import com.webflux.thiago.webfluxdevdojo.service.AnimeAutocomplete;
+import com.webflux.thiago.webfluxdevdojo.service.AnimeChangeStream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a top-10 typeahead lookup against the in-memory index, with names made of random
+ * syllables so prefixes spread like real titles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimeAutocompleteBenchmark {
+    private static final String[] SYLLABLES = {"ka", "ri", "to", "na", "ru", "shi", "mo", "en", "ha", "ya",
+            "ko", "su", "me", "ni", "ra", "ki", "do", "sa", "mi", "no", "ta", "ge", "bo", "lu"};
+
+    @Param({"100000", "1000000"})
+    private int names;
+
+    @Param({"1", "3", "6"})
+    private int prefixLength;
+
+    private AnimeAutocomplete animeAutocomplete;
+    private String[] prefixes;
+    private int next;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        Random random = new Random(42);
+        List<Anime> animes = new ArrayList<>(names);
+        for (int id = 1; id <= names; id++) {
+            animes.add(Anime.builder().id(id).name(name(random)).build());
+        }
+        prefixes = new String[1024];
+        for (int i = 0; i < prefixes.length; i++) {
+            String name = animes.get(random.nextInt(names)).getName();
+            prefixes[i] = name.substring(0, Math.min(prefixLength, name.length()));
+        }
+
+        AnimeAutocompleteProperties properties = new AnimeAutocompleteProperties();
+        properties.setEnabled(true);
+        animeAutocomplete = new AnimeAutocomplete(properties, BenchmarkAnimes.inMemoryRepository(animes.get(0), animes),
+                new AnimeChangeStream(new AnimeChangeStreamProperties()), new SimpleMeterRegistry());
+        animeAutocomplete.start();
+        while (!animeAutocomplete.isReady()) {
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        animeAutocomplete.stop();
+    }
+
+    @Benchmark
+    public List<AnimeSuggestion> suggest() {
+        return animeAutocomplete.suggest(prefixes[next++ & (prefixes.length - 1)], 10);
+    }
+
+    private static String name(Random random) {
+        StringBuilder name = new StringBuilder();
+        int words = 1 + random.nextInt(3);
+        for (int word = 0; word < words; word++) {
+            if (word > 0) {
+                name.append(' ');
+            }
+            int syllables = 2 + random.nextInt(3);
+            for (int i = 0; i < syllables; i++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            if (word == 0) {
+                name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            }
+        }
+        return name.toString();
+    }
+}
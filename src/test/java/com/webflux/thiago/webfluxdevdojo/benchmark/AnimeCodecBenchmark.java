@@ -0,0 +1,56 @@
+package com.webflux.thiago.webfluxdevdojo.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Encode/decode CPU of anime lists in JSON and Smile, the two formats the API negotiates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimeCodecBenchmark {
+    private static final TypeReference<List<Anime>> ANIME_LIST = new TypeReference<>() {
+    };
+
+    @Param({"json", "smile"})
+    private String format;
+
+    @Param({"1", "100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<Anime> animes;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        objectMapper = "smile".equals(format) ? builder.factory(new SmileFactory()).build() : builder.build();
+        animes = IntStream.rangeClosed(1, size).mapToObj(BenchmarkAnimes::anime).collect(Collectors.toList());
+        encoded = objectMapper.writeValueAsBytes(animes);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return objectMapper.writeValueAsBytes(animes);
+    }
+
+    @Benchmark
+    public List<Anime> decode() throws IOException {
+        return objectMapper.readValue(encoded, ANIME_LIST);
+    }
+}
@@ -0,0 +1,113 @@
+package com.webflux.thiago.webfluxdevdojo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webflux.thiago.webfluxdevdojo.config.NettyServerConfig;
+import com.webflux.thiago.webfluxdevdojo.config.NettyServerProperties;
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Latency of a findAll-sized JSON response over loopback with and without gzip, on HTTP/1.1
+ * and h2c. The server uses the same options as the application: NettyServerConfig and the
+ * server.compression threshold from the application's own application.yml.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimeCompressionBenchmark {
+    @Param({"100", "10000"})
+    private int rows;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    @Param({"HTTP11", "H2C"})
+    private HttpProtocol protocol;
+
+    private DisposableServer server;
+    private HttpClient client;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<Anime> animes = IntStream.rangeClosed(1, rows).mapToObj(BenchmarkAnimes::anime).collect(Collectors.toList());
+        HttpServer httpServer = NettyServerConfig.customize(HttpServer.create(), new NettyServerProperties(), null)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .port(0)
+                .route(routes -> routes.get("/animes", (request, response) -> response
+                        .header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+                        .sendByteArray(Mono.fromCallable(() -> objectMapper.writeValueAsBytes(animes)))));
+        int minResponseSize = (int) applicationCompression().getMinResponseSize().toBytes();
+        server = (gzip ? httpServer.compress(minResponseSize) : httpServer).bindNow();
+        client = HttpClient.create()
+                .protocol(protocol)
+                .port(server.port())
+                .headers(headers -> headers.set(HttpHeaderNames.ACCEPT_ENCODING, HttpHeaderValues.GZIP));
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.disposeNow();
+    }
+
+    @Benchmark
+    public byte[] findAll() throws IOException {
+        return decode(get());
+    }
+
+    // read next to the main classes, the test resources' application.yml shadows it on the classpath
+    private static Compression applicationCompression() throws IOException {
+        URL classes = NettyServerConfig.class.getProtectionDomain().getCodeSource().getLocation();
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                .load("application.yml", new UrlResource(new URL(classes, "application.yml")));
+        return new Binder(ConfigurationPropertySources.from(sources))
+                .bind("server.compression", Compression.class)
+                .orElseGet(Compression::new);
+    }
+
+    private byte[] get() {
+        return client.get()
+                .uri("/animes")
+                .responseContent()
+                .aggregate()
+                .asByteArray()
+                .block();
+    }
+
+    // the client pays for inflating, so it is part of the measured latency
+    private byte[] decode(byte[] wire) throws IOException {
+        if (wire.length < 2 || (wire[0] & 0xff) != 0x1f || (wire[1] & 0xff) != 0x8b) {
+            return wire;
+        }
+        try (InputStream gunzip = new GZIPInputStream(new ByteArrayInputStream(wire))) {
+            return gunzip.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.webflux.thiago.webfluxdevdojo.benchmark;
+
+import com.webflux.thiago.webfluxdevdojo.config.AnimeAutocompleteProperties;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeBatchProperties;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeChangeStreamProperties;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeCacheProperties;
+import com.webflux.thiago.webfluxdevdojo.controller.AnimeController;
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimePage;
+import com.webflux.thiago.webfluxdevdojo.repository.AnimeBatchRepositoryImpl;
+import com.webflux.thiago.webfluxdevdojo.repository.AnimeRepository;
+import com.webflux.thiago.webfluxdevdojo.service.AnimeAutocomplete;
+import com.webflux.thiago.webfluxdevdojo.service.AnimeCache;
+import com.webflux.thiago.webfluxdevdojo.service.AnimeChangeStream;
+import com.webflux.thiago.webfluxdevdojo.service.AnimeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.h2.CloseableConnectionFactory;
+import io.r2dbc.h2.H2ConnectionFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller, service and repository end to end against an in-memory H2 database with the
+ * h2 profile's schema, bound without a server so the numbers exclude the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimeHandlerBenchmark {
+    private static final int ROWS = 1000;
+
+    @Param({"false", "true"})
+    private boolean cacheEnabled;
+
+    private CloseableConnectionFactory connectionFactory;
+    private WebTestClient client;
+    private Anime newAnime;
+
+    @Setup
+    public void setUp() {
+        connectionFactory = H2ConnectionFactory.inMemory("benchmark-" + UUID.randomUUID());
+        new ResourceDatabasePopulator(new ClassPathResource("db/h2/schema.sql")).populate(connectionFactory).block();
+        DatabaseClient databaseClient = DatabaseClient.create(connectionFactory);
+
+        AnimeRepository animeRepository = new R2dbcRepositoryFactory(new R2dbcEntityTemplate(connectionFactory))
+                .getRepository(AnimeRepository.class,
+                        RepositoryFragments.just(new AnimeBatchRepositoryImpl(databaseClient)));
+        AnimeCacheProperties cacheProperties = new AnimeCacheProperties();
+        cacheProperties.setEnabled(cacheEnabled);
+        AnimeChangeStream animeChangeStream = new AnimeChangeStream(new AnimeChangeStreamProperties());
+        AnimeService animeService = new AnimeService(animeRepository,
+                new AnimeCache(cacheProperties, new SimpleMeterRegistry()), new AnimeBatchProperties(), animeChangeStream,
+                new AnimeAutocomplete(new AnimeAutocompleteProperties(), animeRepository, animeChangeStream, new SimpleMeterRegistry()), new SimpleMeterRegistry());
+
+        Flux.range(1, ROWS)
+                .map(BenchmarkAnimes::anime)
+                .map(anime -> anime.withId(null))
+                .collectList()
+                .flatMapMany(animeService::saveAll)
+                .blockLast();
+
+        client = WebTestClient.bindToController(new AnimeController(animeService)).build();
+        newAnime = BenchmarkAnimes.anime(0).withId(null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        connectionFactory.close();
+    }
+
+    @Benchmark
+    public Anime findById() {
+        return client.get()
+                .uri("/animes/{id}", ROWS / 2)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Anime.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    @Benchmark
+    public AnimePage findPage() {
+        return client.get()
+                .uri("/animes?after={after}&limit=100", ROWS / 2)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(AnimePage.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    @Benchmark
+    public Anime save() {
+        return client.post()
+                .uri("/animes")
+                .bodyValue(newAnime)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Anime.class)
+                .returnResult()
+                .getResponseBody();
+    }
+}
@@ -0,0 +1,62 @@
+package com.webflux.thiago.webfluxdevdojo.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimeJsonBenchmark {
+    private static final TypeReference<List<Anime>> ANIME_LIST = new TypeReference<>() {
+    };
+
+    @Param({"1", "100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private Anime anime;
+    private List<Anime> animes;
+    private byte[] animeJson;
+    private byte[] animesJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        anime = BenchmarkAnimes.anime(1);
+        animes = IntStream.rangeClosed(1, size).mapToObj(BenchmarkAnimes::anime).collect(Collectors.toList());
+        animeJson = objectMapper.writeValueAsBytes(anime);
+        animesJson = objectMapper.writeValueAsBytes(animes);
+    }
+
+    @Benchmark
+    public byte[] serializeAnime() throws IOException {
+        return objectMapper.writeValueAsBytes(anime);
+    }
+
+    @Benchmark
+    public Anime deserializeAnime() throws IOException {
+        return objectMapper.readValue(animeJson, Anime.class);
+    }
+
+    @Benchmark
+    public byte[] serializeAnimeList() throws IOException {
+        return objectMapper.writeValueAsBytes(animes);
+    }
+
+    @Benchmark
+    public List<Anime> deserializeAnimeList() throws IOException {
+        return objectMapper.readValue(animesJson, ANIME_LIST);
+    }
+}
@@ -0,0 +1,62 @@
+package com.webflux.thiago.webfluxdevdojo.benchmark;
+
+import com.webflux.thiago.webfluxdevdojo.config.AnimeAutocompleteProperties;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeBatchProperties;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeChangeStreamProperties;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeCacheProperties;
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import com.webflux.thiago.webfluxdevdojo.repository.AnimeRepository;
+import com.webflux.thiago.webfluxdevdojo.service.AnimeAutocomplete;
+import com.webflux.thiago.webfluxdevdojo.service.AnimeCache;
+import com.webflux.thiago.webfluxdevdojo.service.AnimeChangeStream;
+import com.webflux.thiago.webfluxdevdojo.service.AnimeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assembly and subscription cost of the update/delete operator chains, with the repository
+ * answering synchronously from memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimeServiceBenchmark {
+
+    @Param({"false", "true"})
+    private boolean cacheEnabled;
+
+    private AnimeService animeService;
+    private Anime anime;
+
+    @Setup
+    public void setUp() {
+        anime = BenchmarkAnimes.anime(1);
+        AnimeCacheProperties cacheProperties = new AnimeCacheProperties();
+        cacheProperties.setEnabled(cacheEnabled);
+        AnimeRepository animeRepository = BenchmarkAnimes.inMemoryRepository(anime);
+        AnimeChangeStream animeChangeStream = new AnimeChangeStream(new AnimeChangeStreamProperties());
+        animeService = new AnimeService(animeRepository,
+                new AnimeCache(cacheProperties, new SimpleMeterRegistry()), new AnimeBatchProperties(), animeChangeStream,
+                new AnimeAutocomplete(new AnimeAutocompleteProperties(), animeRepository, animeChangeStream, new SimpleMeterRegistry()), new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public Anime findById() {
+        return animeService.findById(1).block();
+    }
+
+    @Benchmark
+    public Void update() {
+        return animeService.update(anime).block();
+    }
+
+    @Benchmark
+    public Void delete() {
+        return animeService.delete(1).block();
+    }
+}
@@ -0,0 +1,70 @@
+package com.webflux.thiago.webfluxdevdojo.benchmark;
+
+import com.webflux.thiago.webfluxdevdojo.config.AnimeAutocompleteProperties;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeBatchProperties;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeChangeStreamProperties;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeCacheProperties;
+import com.webflux.thiago.webfluxdevdojo.config.ReactorTracingProperties;
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import com.webflux.thiago.webfluxdevdojo.monitoring.ReactorTracing;
+import com.webflux.thiago.webfluxdevdojo.repository.AnimeRepository;
+import com.webflux.thiago.webfluxdevdojo.service.AnimeAutocomplete;
+import com.webflux.thiago.webfluxdevdojo.service.AnimeCache;
+import com.webflux.thiago.webfluxdevdojo.service.AnimeChangeStream;
+import com.webflux.thiago.webfluxdevdojo.service.AnimeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the AnimeService chains under each devdojo.tracing.mode. Every mode runs in
+ * its own fork because the debug agent and onOperatorDebug cannot be fully undone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimeTracingBenchmark {
+
+    @Param({"NONE", "CHECKPOINT", "AGENT", "FULL"})
+    private ReactorTracingProperties.Mode mode;
+
+    private AnimeService animeService;
+    private Anime anime;
+
+    @Setup
+    public void setUp() {
+        ReactorTracing.install(mode);
+        anime = BenchmarkAnimes.anime(1);
+        AnimeCacheProperties cacheProperties = new AnimeCacheProperties();
+        cacheProperties.setEnabled(false);
+        AnimeRepository animeRepository = BenchmarkAnimes.inMemoryRepository(anime);
+        AnimeChangeStream animeChangeStream = new AnimeChangeStream(new AnimeChangeStreamProperties());
+        animeService = new AnimeService(animeRepository,
+                new AnimeCache(cacheProperties, new SimpleMeterRegistry()), new AnimeBatchProperties(), animeChangeStream,
+                new AnimeAutocomplete(new AnimeAutocompleteProperties(), animeRepository, animeChangeStream, new SimpleMeterRegistry()), new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public Anime findById() {
+        return animeService.findById(1).block();
+    }
+
+    @Benchmark
+    public Void update() {
+        return animeService.update(anime).block();
+    }
+
+    @Benchmark
+    public Anime findPageError() {
+        // invalid limit: measures building and propagating an error through the traced chain
+        return animeService.findPage(0, 0)
+                .map(page -> anime)
+                .onErrorResume(error -> Mono.just(anime))
+                .block();
+    }
+}
@@ -0,0 +1,59 @@
+package com.webflux.thiago.webfluxdevdojo.benchmark;
+
+import com.webflux.thiago.webfluxdevdojo.domain.ApplicationUser;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the old split-per-call authorities against the interned AuthoritySet.
+ * Run with "-prof gc" to see gc.alloc.rate.norm (bytes allocated per call).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplicationUserAuthoritiesBenchmark {
+
+    private String authorities = "ROLE_USER,ROLE_ADMIN";
+    private ApplicationUser user;
+
+    @Setup
+    public void setUp() {
+        user = new ApplicationUser(1, "Thiago", "thiago", "{noop}devdojo", authorities);
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> splitPerCall() {
+        return Arrays.stream(authorities.split(","))
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return user.getAuthorities();
+    }
+
+    @Benchmark
+    public boolean hasRoleByAuthorityScan() {
+        for (GrantedAuthority authority : splitPerCall()) {
+            if ("ROLE_ADMIN".equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean hasRole() {
+        return user.hasRole("ADMIN");
+    }
+}
@@ -0,0 +1,56 @@
+package com.webflux.thiago.webfluxdevdojo.benchmark;
+
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import com.webflux.thiago.webfluxdevdojo.repository.AnimeRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+final class BenchmarkAnimes {
+
+    private BenchmarkAnimes() {
+    }
+
+    static Anime anime(int id) {
+        return Anime.builder()
+                .id(id)
+                .name("Anime number " + id)
+                .build();
+    }
+
+    /**
+     * Repository answering from memory, so service benchmarks measure the operator chains
+     * and not a mocking framework.
+     */
+    static AnimeRepository inMemoryRepository(Anime anime) {
+        return inMemoryRepository(anime, List.of(anime));
+    }
+
+    // findAll streams all, everything else behaves as above
+    static AnimeRepository inMemoryRepository(Anime anime, List<Anime> all) {
+        Mono<Anime> found = Mono.just(anime);
+        return (AnimeRepository) Proxy.newProxyInstance(AnimeRepository.class.getClassLoader(),
+                new Class<?>[]{AnimeRepository.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findById":
+                            return found;
+                        case "save":
+                            return Mono.just(args[0]);
+                        case "updateName":
+                        case "updateNameIfVersion":
+                        case "removeById":
+                            return Mono.just(1);
+                        case "findAll":
+                            return Flux.fromIterable(all);
+                        case "delete":
+                        case "deleteById":
+                            return Mono.empty();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,64 @@
+package com.webflux.thiago.webfluxdevdojo.benchmark;
+
+import com.webflux.thiago.webfluxdevdojo.exception.CustomAttributes;
+import com.webflux.thiago.webfluxdevdojo.exception.GlobalExceptionHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.autoconfigure.web.WebProperties;
+import org.springframework.boot.web.error.ErrorAttributeOptions;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The error path every 4xx/5xx goes through: building the error attributes map and
+ * rendering it through GlobalExceptionHandler (without writing the body).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorResponseBenchmark {
+
+    @Param({"/animes/1", "/animes/1?trace=true"})
+    private String uri;
+
+    private CustomAttributes errorAttributes;
+    private GlobalExceptionHandler globalExceptionHandler;
+    private ServerRequest serverRequest;
+
+    @Setup
+    public void setUp() {
+        errorAttributes = new CustomAttributes();
+        globalExceptionHandler = new GlobalExceptionHandler(errorAttributes,
+                new WebProperties.Resources(),
+                new StaticApplicationContext(),
+                ServerCodecConfigurer.create(),
+                new SimpleMeterRegistry());
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(uri));
+        errorAttributes.storeErrorInformation(
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "Anime not found"), exchange);
+        serverRequest = ServerRequest.create(exchange, HandlerStrategies.withDefaults().messageReaders());
+    }
+
+    @Benchmark
+    public Map<String, Object> getErrorAttributes() {
+        return errorAttributes.getErrorAttributes(serverRequest, ErrorAttributeOptions.defaults());
+    }
+
+    @Benchmark
+    public ServerResponse formatErrorResponse() {
+        return globalExceptionHandler.formatErrorResponse(serverRequest).block();
+    }
+}
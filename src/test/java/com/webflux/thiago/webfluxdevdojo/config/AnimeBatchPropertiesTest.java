@@ -0,0 +1,40 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import com.webflux.thiago.webfluxdevdojo.repository.AnimeBatchRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+class AnimeBatchPropertiesTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(Properties.class);
+
+    @Test
+    @DisplayName("chunk-size binds up to the rows whose parameters fit in one statement")
+    public void chunkSize_Binds_WhenParametersFitInOneStatement(){
+        contextRunner.withPropertyValues("devdojo.batch.chunk-size=" + AnimeBatchRepository.MAX_ROWS)
+                .run(context -> Assertions.assertEquals(AnimeBatchRepository.MAX_ROWS,
+                        context.getBean(AnimeBatchProperties.class).getChunkSize()));
+    }
+
+    @Test
+    @DisplayName("chunk-size fails startup when its rows need more than 32767 bind parameters")
+    public void chunkSize_FailsStartup_WhenParametersExceedLimit(){
+        contextRunner.withPropertyValues("devdojo.batch.chunk-size=" + (AnimeBatchRepository.MAX_ROWS + 1))
+                .run(context -> Assertions.assertNotNull(context.getStartupFailure()));
+    }
+
+    @Test
+    @DisplayName("chunk-size fails startup when it is not positive")
+    public void chunkSize_FailsStartup_WhenZero(){
+        contextRunner.withPropertyValues("devdojo.batch.chunk-size=0")
+                .run(context -> Assertions.assertNotNull(context.getStartupFailure()));
+    }
+
+    @EnableConfigurationProperties(AnimeBatchProperties.class)
+    static class Properties {
+    }
+}
@@ -0,0 +1,92 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import com.webflux.thiago.webfluxdevdojo.service.ApplicationUserCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import reactor.blockhound.BlockHound;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CachingReactiveAuthenticationManagerTest {
+
+    private final AtomicInteger delegateCalls = new AtomicInteger();
+    private ApplicationUserCache applicationUserCache;
+    private CachingReactiveAuthenticationManager authenticationManager;
+
+    @BeforeAll
+    public static void blockHoundSetUp(){
+        BlockHound.install(builder -> builder
+                .allowBlockingCallsInside("java.util.UUID", "randomUUID"));
+    }
+
+    @BeforeEach
+    public void setUp(){
+        applicationUserCache = new ApplicationUserCache(new ApplicationUserCacheProperties(), new SimpleMeterRegistry());
+        UserDetailsRepositoryReactiveAuthenticationManager bcrypt = new UserDetailsRepositoryReactiveAuthenticationManager(
+                new MapReactiveUserDetailsService(User.withUsername("thiago")
+                        .password(PasswordEncoderFactories.createDelegatingPasswordEncoder().encode("devdojo"))
+                        .roles("USER", "ADMIN")
+                        .build()));
+        authenticationManager = new CachingReactiveAuthenticationManager(authentication -> {
+            delegateCalls.incrementAndGet();
+            return bcrypt.authenticate(authentication);
+        }, applicationUserCache);
+    }
+
+    @Test
+    @DisplayName("authenticate answers from the verified credentials without the delegate when the password matches")
+    public void authenticate_SkipsDelegate_WhenCachedPasswordMatches(){
+        Authentication first = authenticationManager.authenticate(login("devdojo")).block();
+
+        StepVerifier.create(authenticationManager.authenticate(login("devdojo")))
+                .expectNext(first)
+                .verifyComplete();
+
+        Assertions.assertEquals(1, delegateCalls.get());
+    }
+
+    @Test
+    @DisplayName("authenticate falls through to bcrypt and rejects a wrong password for a cached user")
+    public void authenticate_RejectsWrongPassword_WhenUserIsCached(){
+        authenticationManager.authenticate(login("devdojo")).block();
+
+        StepVerifier.create(authenticationManager.authenticate(login("wrong")))
+                .expectError(BadCredentialsException.class)
+                .verify();
+
+        Assertions.assertEquals(2, delegateCalls.get());
+        Assertions.assertTrue(applicationUserCache.findAuthentication("thiago", "devdojo").isPresent());
+        Assertions.assertTrue(applicationUserCache.findAuthentication("thiago", "wrong").isEmpty());
+    }
+
+    @Test
+    @DisplayName("evict and evictAll drop the verified credentials so the next login runs bcrypt again")
+    public void authenticate_CallsDelegate_WhenCredentialsWereEvicted(){
+        authenticationManager.authenticate(login("devdojo")).block();
+        applicationUserCache.evict("thiago");
+        authenticationManager.authenticate(login("devdojo")).block();
+        applicationUserCache.evictAll();
+
+        Assertions.assertTrue(applicationUserCache.findAuthentication("thiago", "devdojo").isEmpty());
+        StepVerifier.create(authenticationManager.authenticate(login("devdojo")))
+                .expectNextMatches(Authentication::isAuthenticated)
+                .verifyComplete();
+        Assertions.assertEquals(3, delegateCalls.get());
+    }
+
+    private static Authentication login(String password){
+        return new UsernamePasswordAuthenticationToken("thiago", password);
+    }
+}
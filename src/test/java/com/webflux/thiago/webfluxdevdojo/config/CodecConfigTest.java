@@ -0,0 +1,31 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+
+class CodecConfigTest {
+
+    @Test
+    @DisplayName("smileCodecCustomizer registers Smile for the Smile media types only")
+    public void smileCodecCustomizer_RegistersSmile_WhenApplied(){
+        ServerCodecConfigurer configurer = ServerCodecConfigurer.create();
+        new CodecConfig().smileCodecCustomizer(Jackson2ObjectMapperBuilder.json()).customize(configurer);
+
+        List<HttpMessageWriter<?>> writers = configurer.getWriters();
+        ResolvableType anime = ResolvableType.forClass(Anime.class);
+
+        Assertions.assertTrue(writers.stream().anyMatch(writer -> writer.canWrite(anime, CodecConfig.APPLICATION_SMILE)));
+        Assertions.assertTrue(writers.stream()
+                .filter(writer -> writer.canWrite(anime, MediaType.APPLICATION_JSON))
+                .noneMatch(writer -> writer.getWritableMediaTypes().contains(CodecConfig.APPLICATION_SMILE)));
+    }
+}
@@ -0,0 +1,131 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import reactor.blockhound.BlockHound;
+import reactor.core.publisher.Mono;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+class R2dbcPoolConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(R2dbcAutoConfiguration.class))
+            .withUserConfiguration(R2dbcPoolConfig.class, Properties.class)
+            .withPropertyValues("spring.r2dbc.url=r2dbc:h2:mem:///pool-" + UUID.randomUUID(),
+                    "spring.r2dbc.username=sa", "spring.r2dbc.password=");
+
+    @BeforeAll
+    public static void blockHoundSetUp(){
+        BlockHound.install(builder -> builder
+                .allowBlockingCallsInside("java.util.UUID", "randomUUID"));
+    }
+
+    @Test
+    @DisplayName("connectionFactory is the only connection factory, Boot's auto-configured pool backs off")
+    public void connectionFactory_IsTheOnlyPool_WhenBootAutoConfigures(){
+        contextRunner.run(context -> {
+            Assertions.assertEquals(1, context.getBeansOfType(ConnectionFactory.class).size());
+            Assertions.assertTrue(context.getBean(ConnectionFactory.class) instanceof TimedConnectionFactory);
+            Assertions.assertTrue(context.getBeansOfType(ConnectionPool.class).isEmpty());
+        });
+    }
+
+    @Test
+    @DisplayName("connectionFactory sizes the pool from the shared event loops when the server has none of its own")
+    public void connectionFactory_SizesPoolFromSharedLoops_WhenEventLoopThreadsIsZero(){
+        contextRunner.withPropertyValues("devdojo.r2dbc.pool.connections-per-event-loop=3")
+                .run(context -> Assertions.assertEquals(LoopResources.DEFAULT_IO_WORKER_COUNT * 3,
+                        metrics(context.getBean(TimedConnectionFactory.class)).getMaxAllocatedSize()));
+    }
+
+    @Test
+    @DisplayName("connectionFactory sizes the pool from devdojo.netty.event-loop-threads when the server has its own loops")
+    public void connectionFactory_SizesPoolFromServerLoops_WhenEventLoopThreadsIsSet(){
+        contextRunner.withPropertyValues("devdojo.netty.event-loop-threads=3",
+                        "devdojo.r2dbc.pool.connections-per-event-loop=2")
+                .run(context -> {
+                    ConnectionPool pool = context.getBean(TimedConnectionFactory.class).unwrap();
+
+                    Assertions.assertEquals(6, metrics(context.getBean(TimedConnectionFactory.class)).getMaxAllocatedSize());
+                    StepVerifier.create(pool.warmup())
+                            .expectNext(3)
+                            .verifyComplete();
+                });
+    }
+
+    @Test
+    @DisplayName("connectionFactory binds the pool timeouts and sizes from devdojo.r2dbc.pool")
+    public void connectionFactory_BindsPoolProperties_WhenSet(){
+        contextRunner.withPropertyValues("devdojo.r2dbc.pool.initial-size=1", "devdojo.r2dbc.pool.max-size=2",
+                        "devdojo.r2dbc.pool.max-acquire-time=150ms", "devdojo.r2dbc.pool.max-idle-time=1m",
+                        "devdojo.r2dbc.pool.max-life-time=5m", "devdojo.r2dbc.pool.max-create-connection-time=2s")
+                .run(context -> {
+                    R2dbcPoolProperties properties = context.getBean(R2dbcPoolProperties.class);
+                    Assertions.assertEquals(Duration.ofMillis(150), properties.getMaxAcquireTime());
+                    Assertions.assertEquals(Duration.ofMinutes(1), properties.getMaxIdleTime());
+                    Assertions.assertEquals(Duration.ofMinutes(5), properties.getMaxLifeTime());
+                    Assertions.assertEquals(Duration.ofSeconds(2), properties.getMaxCreateConnectionTime());
+
+                    ConnectionPool pool = context.getBean(TimedConnectionFactory.class).unwrap();
+                    Assertions.assertEquals(2, metrics(context.getBean(TimedConnectionFactory.class)).getMaxAllocatedSize());
+                    StepVerifier.create(pool.warmup())
+                            .expectNext(1)
+                            .verifyComplete();
+                });
+    }
+
+    @Test
+    @DisplayName("create records r2dbc.pool.acquire by outcome and fails after max-acquire-time when the pool is exhausted")
+    public void create_RecordsAcquireTime_WhenConnectionIsAcquiredOrTimesOut(){
+        contextRunner.withPropertyValues("devdojo.r2dbc.pool.max-size=1", "devdojo.r2dbc.pool.max-acquire-time=150ms")
+                .run(context -> {
+                    TimedConnectionFactory connectionFactory = context.getBean(TimedConnectionFactory.class);
+                    MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+
+                    Connection held = connectionFactory.create().block(Duration.ofSeconds(5));
+                    Assertions.assertNotNull(held);
+                    StepVerifier.create(connectionFactory.create())
+                            .expectError()
+                            .verify(Duration.ofSeconds(5));
+                    Mono.from(held.close()).block(Duration.ofSeconds(5));
+
+                    Assertions.assertEquals(1, acquireTimer(meterRegistry, "success").count());
+                    Assertions.assertEquals(1, acquireTimer(meterRegistry, "error").count());
+                    Assertions.assertTrue(acquireTimer(meterRegistry, "error").totalTime(TimeUnit.MILLISECONDS) >= 150);
+                });
+    }
+
+    private static PoolMetrics metrics(TimedConnectionFactory connectionFactory){
+        return connectionFactory.unwrap().getMetrics().orElseThrow();
+    }
+
+    private static io.micrometer.core.instrument.Timer acquireTimer(MeterRegistry meterRegistry, String outcome){
+        return meterRegistry.get("r2dbc.pool.acquire").tag("name", "anime").tag("outcome", outcome).timer();
+    }
+
+    @EnableConfigurationProperties({R2dbcPoolProperties.class, NettyServerProperties.class})
+    static class Properties {
+        @Bean
+        MeterRegistry meterRegistry(){
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.webflux.thiago.webfluxdevdojo.config;
+
+import com.webflux.thiago.webfluxdevdojo.domain.ApplicationUser;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import reactor.blockhound.BlockHound;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class RoleAuthorizationManagerTest {
+
+    private final RoleAuthorizationManager hasAdmin = RoleAuthorizationManager.hasRole("ADMIN");
+
+    @BeforeAll
+    public static void blockHoundSetUp(){
+        BlockHound.install(builder -> builder
+                .allowBlockingCallsInside("java.util.UUID", "randomUUID"));
+    }
+
+    @Test
+    @DisplayName("check grants access when the application user has the role")
+    public void check_Grants_WhenApplicationUserHasRole(){
+        ApplicationUser user = new ApplicationUser(1, "Thiago", "thiago", "{noop}devdojo", "ROLE_USER,ROLE_ADMIN");
+
+        verify(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()), true);
+    }
+
+    @Test
+    @DisplayName("check denies access when the application user misses the role")
+    public void check_Denies_WhenApplicationUserMissesRole(){
+        ApplicationUser user = new ApplicationUser(2, "William", "william", "{noop}devdojo", "ROLE_USER");
+
+        verify(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()), false);
+    }
+
+    @Test
+    @DisplayName("check falls back to the granted authorities when the principal is not an application user")
+    public void check_UsesAuthorities_WhenPrincipalIsNotApplicationUser(){
+        verify(new UsernamePasswordAuthenticationToken("thiago", null,
+                AuthorityUtils.createAuthorityList("ROLE_ADMIN")), true);
+        verify(new UsernamePasswordAuthenticationToken("william", null,
+                AuthorityUtils.createAuthorityList("ROLE_USER", "ADMIN")), false);
+    }
+
+    @Test
+    @DisplayName("check denies access when the authentication is not authenticated, whatever its roles")
+    public void check_Denies_WhenNotAuthenticated(){
+        TestingAuthenticationToken authentication = new TestingAuthenticationToken("thiago", null, "ROLE_ADMIN");
+        authentication.setAuthenticated(false);
+
+        verify(authentication, false);
+    }
+
+    @Test
+    @DisplayName("check denies access when there is no authentication at all")
+    public void check_Denies_WhenAuthenticationIsEmpty(){
+        StepVerifier.create(hasAdmin.check(Mono.empty(), null).map(AuthorizationDecision::isGranted))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    private void verify(Authentication authentication, boolean granted){
+        StepVerifier.create(hasAdmin.check(Mono.just(authentication), null).map(AuthorizationDecision::isGranted))
+                .expectNext(granted)
+                .verifyComplete();
+    }
+}
@@ -1,6 +1,12 @@
 package com.webflux.thiago.webfluxdevdojo.controller;
 
+import com.webflux.thiago.webfluxdevdojo.config.CodecConfig;
 import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeBatchAck;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeDeleteAck;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimePage;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeSearchMode;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeSuggestion;
 import com.webflux.thiago.webfluxdevdojo.service.AnimeService;
 import com.webflux.thiago.webfluxdevdojo.util.AnimeCreator;
 import org.junit.jupiter.api.BeforeAll;
@@ -12,12 +18,19 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.blockhound.BlockHound;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
+import reactor.test.publisher.PublisherProbe;
 
+import java.time.Instant;
 import java.util.List;
 
 @ExtendWith(SpringExtension.class)
@@ -40,6 +53,10 @@ class AnimeControllerTest {
     public void setUp(){
         BDDMockito.when(animeServiceMock.findAll()).thenReturn(Flux.just(anime));
 
+        BDDMockito.when(animeServiceMock.findRevision()).thenReturn(Mono.just(7L));
+
+        BDDMockito.when(animeServiceMock.findPage(0, 10)).thenReturn(Mono.just(new AnimePage(List.of(anime), null)));
+
         BDDMockito.when(animeServiceMock.findById(ArgumentMatchers.anyInt())).thenReturn(Mono.just(anime));
 
         BDDMockito.when(animeServiceMock.save(ArgumentMatchers.any(Anime.class))).thenReturn(Mono.just(anime));
@@ -48,6 +65,9 @@ class AnimeControllerTest {
                 .saveAll(List.of(AnimeCreator.createAnimeToBeSaved(), AnimeCreator.createAnimeToBeSaved())))
                 .thenReturn(Flux.just(anime, anime));
 
+        BDDMockito.when(animeServiceMock.saveStream(ArgumentMatchers.any()))
+                .thenReturn(Flux.just(new AnimeBatchAck(0, 2, List.of(1, 2))));
+
         BDDMockito.when(animeServiceMock.delete(ArgumentMatchers.anyInt())).thenReturn(Mono.empty());
 
         BDDMockito.when(animeServiceMock.update(ArgumentMatchers.any(Anime.class)))
@@ -57,7 +77,25 @@ class AnimeControllerTest {
     @Test
     @DisplayName("FindAll list all animes when succesful")
     public void findAll_ListAnimes_WhenSuccesful(){
-        StepVerifier.create(animeController.findAll())
+        StepVerifier.create(animeController.findAll().flatMapMany(ResponseEntity::getBody))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("FindPage returns a page of animes when succesful")
+    public void findPage_ReturnAnimePage_WhenSuccesful(){
+        StepVerifier.create(animeController.findPage(0, 10).map(ResponseEntity::getBody))
+                .expectSubscription()
+                .expectNext(new AnimePage(List.of(anime), null))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Stream emits all animes when succesful")
+    public void stream_EmitsAnimes_WhenSuccesful(){
+        StepVerifier.create(animeController.stream())
                 .expectSubscription()
                 .expectNext(anime)
                 .verifyComplete();
@@ -66,12 +104,132 @@ class AnimeControllerTest {
     @Test
     @DisplayName("FindById return anime mono when succesful")
     public void findById_ReturnAnimeMono_WhenSuccesful(){
-        StepVerifier.create(animeController.findById(1))
+        StepVerifier.create(animeController.findById(1).map(ResponseEntity::getBody))
                 .expectSubscription()
                 .expectNext(anime)
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("findById returns ETag and Last-Modified and 304 when If-None-Match matches")
+    public void findById_ReturnNotModified_WhenETagMatches(){
+        Anime versioned = anime.withVersion(2).withUpdatedAt(Instant.parse("2021-06-01T10:15:30Z"));
+        BDDMockito.when(animeServiceMock.findById(1)).thenReturn(Mono.just(versioned));
+        WebTestClient client = WebTestClient.bindToController(animeController).build();
+
+        client.get().uri("/animes/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1-2\"")
+                .expectHeader().valueEquals(HttpHeaders.LAST_MODIFIED, "Tue, 01 Jun 2021 10:15:30 GMT");
+
+        client.get().uri("/animes/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1-2\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    @DisplayName("findAll returns 304 without reading the animes when the collection revision is unchanged")
+    public void findAll_ReturnNotModified_WhenRevisionIsUnchanged(){
+        PublisherProbe<Anime> animes = PublisherProbe.of(Flux.just(anime));
+        BDDMockito.when(animeServiceMock.findAll()).thenReturn(animes.flux());
+
+        WebTestClient.bindToController(animeController).build()
+                .get().uri("/animes")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"animes-7\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        animes.assertWasNotSubscribed();
+    }
+
+    @Test
+    @DisplayName("findById and findAll send Vary: Accept since JSON and Smile share one ETag")
+    public void findById_VaryByAccept_WhenETagIsSent(){
+        BDDMockito.when(animeServiceMock.findById(1)).thenReturn(Mono.just(anime.withVersion(2)));
+        WebTestClient client = WebTestClient.bindToController(animeController).build();
+
+        client.get().uri("/animes/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+
+        client.get().uri("/animes/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1-2\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+
+        client.get().uri("/animes")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"animes-7\"")
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+
+    @Test
+    @DisplayName("search passes the mode to the service whatever its case")
+    public void search_ReturnAnimes_WhenModeIsValid(){
+        BDDMockito.when(animeServiceMock.search("nar", AnimeSearchMode.PREFIX, 5)).thenReturn(Flux.just(anime));
+
+        WebTestClient.bindToController(animeController).build()
+                .get().uri("/animes/search?q=nar&mode=Prefix&limit=5")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Anime.class).isEqualTo(List.of(anime));
+    }
+
+    @Test
+    @DisplayName("search returns bad request when the mode is unknown")
+    public void search_ReturnBadRequest_WhenModeIsUnknown(){
+        WebTestClient.bindToController(animeController).build()
+                .get().uri("/animes/search?q=nar&mode=fuzzy")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("autocomplete returns the suggestions of the service")
+    public void autocomplete_ReturnSuggestions_WhenSuccesful(){
+        BDDMockito.when(animeServiceMock.autocomplete("nar", 10))
+                .thenReturn(Mono.just(List.of(new AnimeSuggestion(anime.getId(), anime.getName()))));
+
+        WebTestClient.bindToController(animeController).build()
+                .get().uri("/animes/autocomplete?q=nar")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(AnimeSuggestion.class).isEqualTo(List.of(new AnimeSuggestion(anime.getId(), anime.getName())));
+    }
+
+    @Test
+    @DisplayName("findById answers in Smile when the client accepts Smile")
+    public void findById_ReturnSmile_WhenSmileIsAccepted(){
+        WebTestClient.bindToController(animeController).build()
+                .get().uri("/animes/1")
+                .accept(CodecConfig.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(CodecConfig.APPLICATION_SMILE)
+                .expectBody(Anime.class).isEqualTo(anime);
+    }
+
+    @Test
+    @DisplayName("saveBatch reads and writes Smile when succesful")
+    public void saveBatch_ReadsAndWritesSmile_WhenSuccesful(){
+        WebTestClient.bindToController(animeController).build()
+                .post().uri("/animes/batch")
+                .contentType(CodecConfig.APPLICATION_SMILE)
+                .accept(CodecConfig.APPLICATION_SMILE)
+                .bodyValue(List.of(AnimeCreator.createAnimeToBeSaved(), AnimeCreator.createAnimeToBeSaved()))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().contentType(CodecConfig.APPLICATION_SMILE)
+                .expectBodyList(Anime.class).isEqualTo(List.of(anime, anime));
+    }
+
     @Test
     @DisplayName("Save creates anime when succesful")
     public void save_CreatesAnime_WhenSuccesful(){
@@ -94,6 +252,17 @@ class AnimeControllerTest {
     }
 
 
+    @Test
+    @DisplayName("SaveStream acknowledges chunks of streamed animes when succesful")
+    public void saveStream_AcknowledgesChunks_WhenSuccesful(){
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+
+        StepVerifier.create(animeController.saveStream(Flux.just(animeToBeSaved, animeToBeSaved)))
+                .expectSubscription()
+                .expectNext(new AnimeBatchAck(0, 2, List.of(1, 2)))
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("Delete removes anime when succesful")
     public void delete_RemovesAnime_WhenSuccesful(){
@@ -102,16 +271,86 @@ class AnimeControllerTest {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("deleteAll returns the number of deleted animes when succesful")
+    public void deleteAll_ReturnDeletedCount_WhenSuccesful(){
+        BDDMockito.when(animeServiceMock.deleteAll(List.of(1, 2))).thenReturn(Mono.just(new AnimeDeleteAck(2)));
+
+        WebTestClient.bindToController(animeController).build()
+                .delete().uri("/animes?ids=1,2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("deleteBetween returns the number of deleted animes when succesful")
+    public void deleteBetween_ReturnDeletedCount_WhenSuccesful(){
+        BDDMockito.when(animeServiceMock.deleteBetween(1, 10)).thenReturn(Mono.just(new AnimeDeleteAck(10)));
+
+        WebTestClient.bindToController(animeController).build()
+                .delete().uri("/animes?from=1&to=10")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(10);
+    }
+
     @Test
     @DisplayName("update save updated anime and return empty mono when succesful")
     public void update_SavesUpdatedAnime_WhenSuccesful(){
 
-        StepVerifier.create(animeController.update(1, AnimeCreator.createAnimeToBeSaved()))
+        StepVerifier.create(animeController.update(1, AnimeCreator.createAnimeToBeSaved(), new HttpHeaders()))
                 .expectSubscription()
                 .expectNext()
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("update passes the If-Match versions of this anime to the conditional update")
+    public void update_UpdatesIfMatch_WhenIfMatchIsPresent(){
+        BDDMockito.when(animeServiceMock.updateIfMatch(anime, List.of(2, 3))).thenReturn(Mono.empty());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch(List.of("\"1-2\"", "W/\"1-4\"", "\"2-5\"", "\"1-3\""));
+
+        StepVerifier.create(animeController.update(1, AnimeCreator.createAnimeToBeSaved(), headers))
+                .expectSubscription()
+                .verifyComplete();
+
+        BDDMockito.verify(animeServiceMock).updateIfMatch(anime, List.of(2, 3));
+    }
+
+    @Test
+    @DisplayName("update takes the exists-conditional path when If-Match is *")
+    public void update_UpdatesIfExists_WhenIfMatchIsWildcard(){
+        BDDMockito.when(animeServiceMock.updateIfExists(anime)).thenReturn(Mono.empty());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch("*");
+
+        StepVerifier.create(animeController.update(1, AnimeCreator.createAnimeToBeSaved(), headers))
+                .expectSubscription()
+                .verifyComplete();
+
+        BDDMockito.verify(animeServiceMock).updateIfExists(anime);
+        BDDMockito.verify(animeServiceMock, BDDMockito.never()).update(ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("update returns precondition failed without touching the service when If-Match is for another anime")
+    public void update_ReturnPreconditionFailed_WhenIfMatchIsForAnotherAnime(){
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch("\"2-1\"");
+
+        StepVerifier.create(animeController.update(1, AnimeCreator.createAnimeToBeSaved(), headers))
+                .expectSubscription()
+                .expectErrorMatches(error -> error instanceof ResponseStatusException
+                        && ((ResponseStatusException) error).getStatus() == HttpStatus.PRECONDITION_FAILED)
+                .verify();
+
+        BDDMockito.verifyNoInteractions(animeServiceMock);
+    }
+
 
 
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.webflux.thiago.webfluxdevdojo.domain;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+class AuthoritySetTest {
+
+    @Test
+    @DisplayName("of trims every authority and skips empty tokens")
+    public void of_TrimsAndSkipsEmptyTokens_WhenColumnIsSloppy(){
+        AuthoritySet authoritySet = AuthoritySet.of(" ROLE_USER ,, ROLE_ADMIN,  ,");
+
+        Assertions.assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"), authoritySet.getAuthorityNames());
+        Assertions.assertEquals(List.of("ROLE_USER", "ROLE_ADMIN"), authoritySet.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("of takes roles only from authorities with the ROLE_ prefix")
+    public void of_ReturnsRolesWithoutPrefix_WhenAuthorityStartsWithRole(){
+        AuthoritySet authoritySet = AuthoritySet.of("ROLE_USER,SCOPE_read,role_ADMIN");
+
+        Assertions.assertEquals(Set.of("USER"), authoritySet.getRoles());
+        Assertions.assertTrue(authoritySet.hasRole("USER"));
+        Assertions.assertFalse(authoritySet.hasRole("ROLE_USER"));
+        Assertions.assertFalse(authoritySet.hasRole("ADMIN"));
+        Assertions.assertTrue(authoritySet.hasAuthority("SCOPE_read"));
+    }
+
+    @Test
+    @DisplayName("of returns an empty set when the column is null or blank")
+    public void of_ReturnsEmptySet_WhenColumnIsNullOrBlank(){
+        Assertions.assertTrue(AuthoritySet.of(null).getAuthorities().isEmpty());
+        Assertions.assertTrue(AuthoritySet.of("  ").getRoles().isEmpty());
+        Assertions.assertTrue(AuthoritySet.of(" , ").getAuthorityNames().isEmpty());
+    }
+
+    @Test
+    @DisplayName("of returns the same instance for equal column values and shares their authorities")
+    public void of_ReturnsSameInstance_WhenColumnValuesAreEqual(){
+        String raw = "ROLE_USER,ROLE_ADMIN";
+
+        AuthoritySet first = AuthoritySet.of(raw);
+
+        Assertions.assertSame(first, AuthoritySet.of(new String(raw.toCharArray())));
+        Assertions.assertSame(first.getAuthorities().iterator().next(),
+                AuthoritySet.of("ROLE_USER").getAuthorities().iterator().next());
+    }
+}
@@ -0,0 +1,72 @@
+package com.webflux.thiago.webfluxdevdojo.integration;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.blockhound.BlockHound;
+
+@ExtendWith(SpringExtension.class)
+// src/test/resources/application.yml shadows the main one, which exposes these endpoints
+@SpringBootTest(properties = "management.endpoints.web.exposure.include=health,metrics,prometheus,blockingcalls,eventloops")
+@ActiveProfiles("h2")
+@AutoConfigureWebTestClient
+public class ActuatorSecurityIT {
+
+    private static final String REGULAR_USER = "user";
+    private static final String ADMIN_USER = "thiago";
+
+    @Autowired
+    WebTestClient client;
+
+    @BeforeAll
+    public static void blockHoundSetUp() {
+        BlockHound.install(builder -> builder
+                .allowBlockingCallsInside("java.util.UUID", "randomUUID"));
+    }
+
+    @Test
+    @DisplayName("actuator endpoints return forbidden for GET when the user has not role ADMIN")
+    @WithUserDetails(REGULAR_USER)
+    void actuator_ReturnForbidden_WhenAuthorizedUserHasNotRoleAdmin(){
+        for (String endpoint : new String[]{"eventloops", "blockingcalls", "prometheus", "metrics"}) {
+            client
+                    .get()
+                    .uri("/actuator/{endpoint}", endpoint)
+                    .exchange()
+                    .expectStatus().isForbidden();
+        }
+    }
+
+    @Test
+    @DisplayName("actuator endpoints are readable when the user has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    void actuator_ReturnOk_WhenUserHasRoleAdmin(){
+        // no prometheus: Spring Boot tests turn metric exporters off
+        for (String endpoint : new String[]{"eventloops", "blockingcalls", "metrics"}) {
+            client
+                    .get()
+                    .uri("/actuator/{endpoint}", endpoint)
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+    }
+
+    @Test
+    @DisplayName("actuator health stays readable without role ADMIN")
+    @WithUserDetails(REGULAR_USER)
+    void health_ReturnOk_WhenAuthorizedUserHasNotRoleAdmin(){
+        client
+                .get()
+                .uri("/actuator/health")
+                .exchange()
+                .expectStatus().isOk();
+    }
+}
@@ -1,6 +1,8 @@
 package com.webflux.thiago.webfluxdevdojo.integration;
 
+import com.webflux.thiago.webfluxdevdojo.config.CodecConfig;
 import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeBatchAck;
 import com.webflux.thiago.webfluxdevdojo.repository.AnimeRepository;
 import com.webflux.thiago.webfluxdevdojo.util.AnimeCreator;
 import com.webflux.thiago.webfluxdevdojo.util.WebTestClientUtil;
@@ -14,6 +16,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
@@ -22,13 +25,16 @@ import reactor.blockhound.BlockingOperationError;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
+@ActiveProfiles("h2")
 @AutoConfigureWebTestClient
 public class AnimeControllerIT {
 
@@ -74,6 +80,7 @@ public class AnimeControllerIT {
         BDDMockito.when(animeRepositoryMock.findAll()).thenReturn(Flux.just(anime));
         BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
                 .thenReturn(Mono.just(anime));
+        BDDMockito.when(animeRepositoryMock.findPageAfter(0, 10)).thenReturn(Flux.just(anime));
         BDDMockito.when(animeRepositoryMock.save(AnimeCreator.createAnimeToBeSaved()))
                 .thenReturn(Mono.just(anime));
         BDDMockito.when(animeRepositoryMock.delete(ArgumentMatchers.any(Anime.class)))
@@ -81,9 +88,12 @@ public class AnimeControllerIT {
         BDDMockito.when(animeRepositoryMock.save(AnimeCreator.createValidAnime()))
                 .thenReturn(Mono.empty());
 
-        BDDMockito.when(animeRepositoryMock
-                .saveAll(List.of(AnimeCreator.createAnimeToBeSaved(), AnimeCreator.createAnimeToBeSaved())))
-                .thenReturn(Flux.just(anime, anime));
+        BDDMockito.when(animeRepositoryMock.insertAll(ArgumentMatchers.anyList()))
+                .thenReturn(Flux.just(1, 1));
+        BDDMockito.when(animeRepositoryMock.findRevision()).thenReturn(Mono.just(7L));
+        BDDMockito.when(animeRepositoryMock.removeById(ArgumentMatchers.anyInt())).thenReturn(Mono.just(1));
+        BDDMockito.when(animeRepositoryMock.updateName(ArgumentMatchers.anyInt(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+                .thenReturn(Mono.just(1));
     }
 
     @Test
@@ -134,6 +144,37 @@ public class AnimeControllerIT {
                 .contains(anime);
     }
 
+    @Test
+    @DisplayName("FindPage returns a page of animes when user is succesfully authenticated with role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    void findPage_ReturnAnimePage_WhenSuccesful(){
+        client
+                .get()
+                .uri("/animes?after=0&limit=10")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content[0].id").isEqualTo(anime.getId())
+                .jsonPath("$.next").doesNotExist();
+    }
+
+    @Test
+    @DisplayName("Stream emits animes as ndjson when user is succesfully authenticated with role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    void stream_EmitsAnimes_WhenSuccesful(){
+        client
+                .get()
+                .uri("/animes")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Anime.class)
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .expectNext(anime)
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("FindById return a mono of anime when user is succesfully authenticated with role USER")
     @WithUserDetails(REGULAR_USER)
@@ -180,6 +221,26 @@ public class AnimeControllerIT {
                 .isEqualTo(anime);
     }
 
+    @Test
+    @DisplayName("Save ignores the id, version and updatedAt sent by the client and inserts a new anime")
+    @WithUserDetails(ADMIN_USER)
+    void save_InsertsNewAnime_WhenBodyCarriesVersion(){
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved()
+                .withId(5)
+                .withVersion(3)
+                .withUpdatedAt(Instant.parse("2020-01-01T00:00:00Z"));
+        client.post()
+                .uri("/animes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(animeToBeSaved))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Anime.class)
+                .isEqualTo(anime);
+
+        BDDMockito.verify(animeRepositoryMock).save(AnimeCreator.createAnimeToBeSaved());
+    }
+
     @Test
     @DisplayName("SaveBatch creates anime when user is succesfully authenticated with role ADMIN")
     @WithUserDetails(ADMIN_USER)
@@ -191,9 +252,27 @@ public class AnimeControllerIT {
                 .body(BodyInserters.fromValue(List.of(animeToBeSaved, animeToBeSaved)))
                 .exchange()
                 .expectStatus().isCreated()
-                .expectBodyList(Anime.class)
-                .hasSize(2)
-                .contains(anime);
+                // saveAll stamps version and updatedAt, so only the generated id and the name are known
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$.[0].id").isEqualTo(anime.getId())
+                .jsonPath("$.[0].name").isEqualTo(anime.getName());
+    }
+
+    @Test
+    @DisplayName("SaveBatch acknowledges chunks when animes are streamed as ndjson by a user with role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    void saveBatch_AcknowledgesChunks_WhenBodyIsNdjson(){
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+        client.post()
+                .uri("/animes/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .body(Flux.just(animeToBeSaved, animeToBeSaved), Anime.class)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBodyList(AnimeBatchAck.class)
+                .contains(new AnimeBatchAck(0, 2, List.of(1, 1)));
     }
 
     @Test
@@ -215,9 +294,6 @@ public class AnimeControllerIT {
     @DisplayName("SaveBatch returns mono error with bad request when name is empty")
     @WithUserDetails(ADMIN_USER)
     void saveBatch_ReturnMonoError_WhenNameIsEmpty(){
-        BDDMockito.when(animeRepositoryMock
-                .saveAll(ArgumentMatchers.anyIterable()))
-                .thenReturn(Flux.just(anime, anime.withName("")));
         Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
         client.post()
                 .uri("/animes/batch")
@@ -229,6 +305,22 @@ public class AnimeControllerIT {
                 .jsonPath("$.status").isEqualTo(400);
     }
 
+    @Test
+    @DisplayName("FindById return the error in Smile when the client accepts Smile")
+    @WithUserDetails(REGULAR_USER)
+    void findById_ReturnSmileError_WhenSmileIsAccepted(){
+        BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.empty());
+
+        client
+                .get()
+                .uri("/animes/{id}", 1)
+                .accept(CodecConfig.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectHeader().contentType(CodecConfig.APPLICATION_SMILE);
+    }
+
     @Test
     @DisplayName("Delete removes anime when user is succesfully authenticated with role ADMIN")
     @WithUserDetails(ADMIN_USER)
@@ -243,8 +335,7 @@ public class AnimeControllerIT {
     @DisplayName("Delete return mono error when anime doesnt exist")
     @WithUserDetails(REGULAR_USER)
     void delete_ReturnMonoError_WhenAnimeDoesntExist(){
-        BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
-                .thenReturn(Mono.empty());
+        BDDMockito.when(animeRepositoryMock.removeById(ArgumentMatchers.anyInt())).thenReturn(Mono.just(0));
         client.delete()
                 .uri("anime/{id}", 1)
                 .exchange()
@@ -271,8 +362,8 @@ public class AnimeControllerIT {
     @DisplayName("Update return mono error when anime doesnt exist")
     @WithUserDetails(ADMIN_USER)
     void update_ReturnMonoError_WhenAnimeDoesntExist(){
-        BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
-                .thenReturn(Mono.empty());
+        BDDMockito.when(animeRepositoryMock.updateName(ArgumentMatchers.anyInt(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+                .thenReturn(Mono.just(0));
         client.put()
                 .uri("/animes/{id}", 1)
                 .contentType(MediaType.APPLICATION_JSON)
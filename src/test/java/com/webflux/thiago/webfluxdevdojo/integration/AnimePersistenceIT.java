@@ -0,0 +1,170 @@
+package com.webflux.thiago.webfluxdevdojo.integration;
+
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.blockhound.BlockHound;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * AnimeControllerIT mocks the repository; these go through the real queries and triggers on
+ * the h2 profile. The database is shared with the other ITs, so every test writes its own rows.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ActiveProfiles("h2")
+@AutoConfigureWebTestClient
+public class AnimePersistenceIT {
+
+    private static final String ADMIN_USER = "thiago";
+
+    @Autowired
+    WebTestClient client;
+
+    @BeforeAll
+    public static void blockHoundSetUp() {
+        BlockHound.install(builder -> builder
+                .allowBlockingCallsInside("java.util.UUID", "randomUUID"));
+    }
+
+    @Test
+    @DisplayName("saveBatch inserts every anime so each one can be read back")
+    @WithUserDetails(ADMIN_USER)
+    void saveBatch_InsertsAnimes_WhenSuccesful(){
+        String first = uniqueName("batch");
+        String second = uniqueName("batch");
+
+        List<Anime> saved = client
+                .post()
+                .uri("/animes/batch")
+                .bodyValue(List.of(Map.of("name", first), Map.of("name", second)))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBodyList(Anime.class)
+                .hasSize(2)
+                .returnResult()
+                .getResponseBody();
+
+        Assertions.assertNotNull(saved);
+        Assertions.assertEquals(List.of(first, second), List.of(saved.get(0).getName(), saved.get(1).getName()));
+        for (Anime anime : saved) {
+            client
+                    .get()
+                    .uri("/animes/{id}", anime.getId())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.name").isEqualTo(anime.getName());
+        }
+    }
+
+    @Test
+    @DisplayName("update applies If-Match once and returns precondition failed for the now stale ETag")
+    @WithUserDetails(ADMIN_USER)
+    void update_ReturnPreconditionFailed_WhenIfMatchIsStale(){
+        Anime anime = create();
+        String eTag = client
+                .get()
+                .uri("/animes/{id}", anime.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Anime.class)
+                .getResponseHeaders()
+                .getETag();
+        Assertions.assertNotNull(eTag);
+
+        update(anime.getId(), Map.of("name", uniqueName("updated")), eTag)
+                .expectStatus().isNoContent();
+        update(anime.getId(), Map.of("name", uniqueName("updated")), eTag)
+                .expectStatus().isEqualTo(412);
+    }
+
+    @Test
+    @DisplayName("update returns conflict when the body carries a version that is no longer current")
+    @WithUserDetails(ADMIN_USER)
+    void update_ReturnConflict_WhenBodyVersionIsStale(){
+        Anime anime = create();
+
+        update(anime.getId(), Map.of("name", uniqueName("updated"), "version", anime.getVersion()), null)
+                .expectStatus().isNoContent();
+        update(anime.getId(), Map.of("name", uniqueName("updated"), "version", anime.getVersion()), null)
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    @DisplayName("findAll answers If-None-Match with not modified until a write changes the collection ETag")
+    @WithUserDetails(ADMIN_USER)
+    void findAll_ChangesETag_WhenAnimeIsWritten(){
+        String eTag = client
+                .get()
+                .uri("/animes")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Anime.class)
+                .getResponseHeaders()
+                .getETag();
+        Assertions.assertNotNull(eTag);
+        client
+                .get()
+                .uri("/animes")
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        create();
+
+        String changed = client
+                .get()
+                .uri("/animes")
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Anime.class)
+                .getResponseHeaders()
+                .getETag();
+        Assertions.assertNotNull(changed);
+        Assertions.assertNotEquals(eTag, changed);
+    }
+
+    private Anime create(){
+        Anime anime = client
+                .post()
+                .uri("/animes")
+                .bodyValue(Map.of("name", uniqueName("anime")))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Anime.class)
+                .returnResult()
+                .getResponseBody();
+        Assertions.assertNotNull(anime);
+        return anime;
+    }
+
+    private WebTestClient.ResponseSpec update(int id, Map<String, Object> body, String ifMatch){
+        WebTestClient.RequestBodySpec request = client
+                .put()
+                .uri("/animes/{id}", id);
+        if (ifMatch != null) {
+            request.header(HttpHeaders.IF_MATCH, ifMatch);
+        }
+        return request.bodyValue(body).exchange();
+    }
+
+    private static String uniqueName(String prefix){
+        return prefix + "-" + UUID.randomUUID();
+    }
+}
@@ -0,0 +1,226 @@
+package com.webflux.thiago.webfluxdevdojo.loadtest;
+
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunctions;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.blockhound.BlockHound;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Closed-loop load test: {@code loadtest.concurrency} virtual users send a weighted mix of
+ * reads, page reads, single writes and batch writes to a locally started app backed by
+ * in-memory H2 (the h2 profile), then the run fails if any latency/throughput SLO is missed.
+ * <p>
+ * Run with {@code mvn -Pload-test test}; every setting below can be overridden with -D.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "devdojo.cache.animes.enabled=true",
+                "logging.level.com.webflux.thiago.webfluxdevdojo.service=WARN"
+        })
+@ActiveProfiles("h2")
+@Tag("load")
+@Slf4j
+public class AnimeLoadTest {
+    private static final String PASSWORD = "devdojo";
+    private static final int SEED_ANIMES = 1000;
+    private static final int BATCH_SIZE = 50;
+    private static final ParameterizedTypeReference<List<Anime>> ANIME_LIST = new ParameterizedTypeReference<>() {
+    };
+
+    private final Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 5));
+    private final Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 20));
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 32);
+    private final String mix = System.getProperty("loadtest.mix", "read:70,page:10,write:15,batch:5");
+    private final long sloP50Millis = Long.getLong("loadtest.slo.p50-ms", 200);
+    private final long sloP99Millis = Long.getLong("loadtest.slo.p99-ms", 750);
+    private final long sloP999Millis = Long.getLong("loadtest.slo.p999-ms", 1500);
+    private final long sloMinThroughput = Long.getLong("loadtest.slo.min-throughput", 50);
+    private final double sloMaxErrorRate = Double.parseDouble(System.getProperty("loadtest.slo.max-error-rate", "0.001"));
+
+    @LocalServerPort
+    int port;
+
+    private WebClient user;
+    private WebClient admin;
+    private List<Integer> animeIds;
+
+    @BeforeAll
+    public static void blockHoundSetUp() {
+        BlockHound.install(builder -> builder
+                .allowBlockingCallsInside("java.util.UUID", "randomUUID")
+                // short locks that only park under contention, which is what this test creates
+                .allowBlockingCallsInside("java.util.concurrent.PriorityBlockingQueue", "offer")
+                .allowBlockingCallsInside("com.github.benmanes.caffeine.cache.BoundedLocalCache", "performCleanUp"));
+    }
+
+    @BeforeEach
+    public void setUp() {
+        user = client("user");
+        admin = client("thiago");
+        animeIds = admin.post()
+                .uri("/animes/batch")
+                .bodyValue(IntStream.range(0, SEED_ANIMES)
+                        .mapToObj(i -> Anime.builder().name("Seed anime " + i).build())
+                        .collect(Collectors.toList()))
+                .retrieve()
+                .bodyToMono(ANIME_LIST)
+                .map(animes -> animes.stream().map(Anime::getId).collect(Collectors.toList()))
+                .block();
+    }
+
+    @Test
+    @DisplayName("mixed traffic meets the latency, throughput and error-rate SLOs")
+    public void mixedTraffic_MeetsSlos() {
+        Map<ScenarioStats, Supplier<Mono<?>>> scenarios = new LinkedHashMap<>();
+        scenarios.put(new ScenarioStats("read"), this::findById);
+        scenarios.put(new ScenarioStats("page"), this::findPage);
+        scenarios.put(new ScenarioStats("write"), this::save);
+        scenarios.put(new ScenarioStats("batch"), this::saveBatch);
+        List<ScenarioStats> weighted = weighted(scenarios.keySet());
+
+        run(scenarios, weighted, warmup);
+        scenarios.keySet().forEach(ScenarioStats::reset);
+        long start = System.nanoTime();
+        run(scenarios, weighted, duration);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Histogram total = new Histogram(3);
+        long errors = 0;
+        StringBuilder report = new StringBuilder(String.format("%nload test: %d users, %s, mix %s%n%-6s %9s %9s %8s %8s %8s %8s %7s%n",
+                concurrency, duration, mix, "", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors"));
+        for (ScenarioStats stats : scenarios.keySet()) {
+            Histogram histogram = stats.snapshot();
+            total.add(histogram);
+            errors += stats.getErrors();
+            report.append(line(stats.getName(), histogram, seconds, stats.getErrors()));
+        }
+        report.append(line("total", total, seconds, errors));
+        log.info(report.toString());
+
+        long requests = total.getTotalCount() + errors;
+        List<String> violations = new ArrayList<>();
+        check(violations, "p50", millis(total, 50.0), sloP50Millis);
+        check(violations, "p99", millis(total, 99.0), sloP99Millis);
+        check(violations, "p999", millis(total, 99.9), sloP999Millis);
+        if (requests / seconds < sloMinThroughput) {
+            violations.add(String.format("throughput %.0f req/s < %d req/s", requests / seconds, sloMinThroughput));
+        }
+        if (requests == 0 || (double) errors / requests > sloMaxErrorRate) {
+            violations.add(String.format("error rate %d/%d > %s", errors, requests, sloMaxErrorRate));
+        }
+        Assertions.assertTrue(violations.isEmpty(), () -> "SLOs exceeded: " + violations + report);
+    }
+
+    private void run(Map<ScenarioStats, Supplier<Mono<?>>> scenarios, List<ScenarioStats> weighted, Duration runFor) {
+        long deadline = System.nanoTime() + runFor.toNanos();
+        Flux.range(0, concurrency)
+                .flatMap(virtualUser -> Mono.defer(() -> {
+                            ScenarioStats stats = weighted.get(ThreadLocalRandom.current().nextInt(weighted.size()));
+                            long start = System.nanoTime();
+                            return scenarios.get(stats).get()
+                                    .doOnSuccess(response -> stats.recordSuccess(start))
+                                    .doOnError(error -> stats.recordError())
+                                    .onErrorResume(error -> Mono.empty());
+                        })
+                        .repeat(() -> System.nanoTime() < deadline), concurrency)
+                .blockLast(runFor.plusMinutes(1));
+    }
+
+    private List<ScenarioStats> weighted(Iterable<ScenarioStats> scenarios) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] nameAndWeight = entry.trim().split(":");
+            weights.put(nameAndWeight[0], Integer.parseInt(nameAndWeight[1]));
+        }
+        List<ScenarioStats> weighted = new ArrayList<>();
+        for (ScenarioStats stats : scenarios) {
+            for (int i = 0; i < weights.getOrDefault(stats.getName(), 0); i++) {
+                weighted.add(stats);
+            }
+        }
+        Assertions.assertFalse(weighted.isEmpty(), "loadtest.mix selects no scenario: " + mix);
+        return weighted;
+    }
+
+    private Mono<?> findById() {
+        return user.get()
+                .uri("/animes/{id}", animeIds.get(ThreadLocalRandom.current().nextInt(animeIds.size())))
+                .retrieve()
+                .bodyToMono(Anime.class);
+    }
+
+    private Mono<?> findPage() {
+        return admin.get()
+                .uri("/animes?after={after}&limit=50", ThreadLocalRandom.current().nextInt(SEED_ANIMES))
+                .retrieve()
+                .bodyToMono(String.class);
+    }
+
+    private Mono<?> save() {
+        return admin.post()
+                .uri("/animes")
+                .bodyValue(Anime.builder().name("Load anime").build())
+                .retrieve()
+                .bodyToMono(Anime.class);
+    }
+
+    private Mono<?> saveBatch() {
+        return admin.post()
+                .uri("/animes/batch")
+                .bodyValue(IntStream.range(0, BATCH_SIZE)
+                        .mapToObj(i -> Anime.builder().name("Load batch anime " + i).build())
+                        .collect(Collectors.toList()))
+                .retrieve()
+                .bodyToMono(ANIME_LIST);
+    }
+
+    private WebClient client(String username) {
+        return WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .filter(ExchangeFilterFunctions.basicAuthentication(username, PASSWORD))
+                .build();
+    }
+
+    private static String line(String name, Histogram histogram, double seconds, long errors) {
+        return String.format("%-6s %9d %9.0f %8.2f %8.2f %8.2f %8.2f %7d%n", name, histogram.getTotalCount(),
+                histogram.getTotalCount() / seconds, millis(histogram, 50.0), millis(histogram, 99.0),
+                millis(histogram, 99.9), histogram.getMaxValue() / 1000.0, errors);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static void check(List<String> violations, String name, double actualMillis, long sloMillis) {
+        if (actualMillis > sloMillis) {
+            violations.add(String.format("%s %.2f ms > %d ms", name, actualMillis, sloMillis));
+        }
+    }
+}
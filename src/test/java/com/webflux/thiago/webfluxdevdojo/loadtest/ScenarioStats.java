@@ -0,0 +1,48 @@
+package com.webflux.thiago.webfluxdevdojo.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies (in microseconds) and error count of one load-test scenario.
+ */
+class ScenarioStats {
+    private final String name;
+    private final Recorder recorder = new Recorder(3);
+    private final LongAdder errors = new LongAdder();
+
+    ScenarioStats(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    void recordSuccess(long startNanos) {
+        recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Returns what was recorded since the previous call, so the warm-up can be discarded.
+     */
+    Histogram snapshot() {
+        return recorder.getIntervalHistogram();
+    }
+
+    void reset() {
+        recorder.reset();
+        errors.reset();
+    }
+}
@@ -0,0 +1,37 @@
+package com.webflux.thiago.webfluxdevdojo.monitoring;
+
+import com.webflux.thiago.webfluxdevdojo.config.BlockHoundProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+class BlockHoundInstallerTest {
+
+    @Test
+    @DisplayName("allowedBlockingCalls keeps the built-in call sites when the configured list is replaced")
+    public void allowedBlockingCalls_KeepsBuiltIns_WhenConfiguredListIsReplaced() {
+        BlockHoundProperties properties = new BlockHoundProperties();
+        properties.setAllowBlockingCallsInside(List.of("java.util.UUID#randomUUID"));
+
+        List<String> allowed = BlockHoundInstaller.allowedBlockingCalls(properties);
+
+        Assertions.assertTrue(allowed.contains("java.util.concurrent.PriorityBlockingQueue#offer"));
+        Assertions.assertTrue(allowed.contains("com.github.benmanes.caffeine.cache.BoundedLocalCache#performCleanUp"));
+        Assertions.assertTrue(allowed.contains("java.util.UUID#randomUUID"));
+    }
+
+    @Test
+    @DisplayName("BUILT_IN_ALLOWED_CALLS names methods that exist, since BlockHound ignores unknown ones silently")
+    public void builtInAllowedCalls_NameExistingMethods() throws ClassNotFoundException {
+        for (String entry : BlockHoundInstaller.BUILT_IN_ALLOWED_CALLS) {
+            String[] classAndMethod = entry.split("#");
+            Class<?> type = Class.forName(classAndMethod[0]);
+
+            Assertions.assertTrue(Arrays.stream(type.getDeclaredMethods())
+                    .anyMatch(method -> method.getName().equals(classAndMethod[1])), entry);
+        }
+    }
+}
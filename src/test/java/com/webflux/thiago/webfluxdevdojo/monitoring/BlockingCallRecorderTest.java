@@ -0,0 +1,55 @@
+package com.webflux.thiago.webfluxdevdojo.monitoring;
+
+import com.webflux.thiago.webfluxdevdojo.config.BlockHoundProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.blockhound.BlockingMethod;
+
+import java.lang.reflect.Modifier;
+
+class BlockingCallRecorderTest {
+
+    private final BlockingMethod sleep = new BlockingMethod("java.lang.Thread", "sleep", Modifier.STATIC);
+
+    private BlockingCallRecorder recorder;
+
+    @BeforeEach
+    public void setUp() {
+        BlockHoundProperties properties = new BlockHoundProperties();
+        properties.setMode(BlockHoundProperties.Mode.LOG);
+        properties.setMaxSignatures(2);
+        recorder = new BlockingCallRecorder();
+        recorder.configure(properties);
+    }
+
+    @Test
+    @DisplayName("record counts repeated calls from the same call site under one signature")
+    public void record_CountsOneSignature_WhenCalledFromTheSameSite() {
+        for (int i = 0; i < 3; i++) {
+            recorder.record(sleep);
+        }
+
+        Assertions.assertEquals(3, recorder.getTotal());
+        Assertions.assertEquals(1, recorder.getSignatures());
+        BlockingCall call = recorder.getCalls().get(0);
+        Assertions.assertEquals("java.lang.Thread#sleep", call.getBlockingMethod());
+        Assertions.assertEquals(3, call.getCount());
+        Assertions.assertTrue(call.getStack().get(0).startsWith(getClass().getName()));
+        Assertions.assertSame(call, recorder.pollUnreported());
+        Assertions.assertNull(recorder.pollUnreported());
+    }
+
+    @Test
+    @DisplayName("record drops new signatures once maxSignatures is reached")
+    public void record_DropsCall_WhenMaxSignaturesIsReached() {
+        recorder.record(sleep);
+        recorder.record(sleep);
+        recorder.record(sleep);
+
+        Assertions.assertEquals(3, recorder.getTotal());
+        Assertions.assertEquals(2, recorder.getSignatures());
+        Assertions.assertEquals(1, recorder.getDropped());
+    }
+}
@@ -0,0 +1,130 @@
+package com.webflux.thiago.webfluxdevdojo.monitoring;
+
+import com.webflux.thiago.webfluxdevdojo.config.EventLoopMonitorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class EventLoopMonitorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EventLoopMonitorProperties properties = new EventLoopMonitorProperties();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private LoopResources loopResources;
+    private EventLoopMonitor monitor;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        loopResources = LoopResources.create("monitor-test", 1, true);
+        ObjectProvider<LoopResources> serverLoopResources = Mockito.mock(ObjectProvider.class);
+        BDDMockito.when(serverLoopResources.getIfAvailable(ArgumentMatchers.any())).thenReturn(loopResources);
+        properties.setEnabled(true);
+        // probe() is driven by the test, the scheduled one never comes round
+        properties.setProbeInterval(Duration.ofHours(1));
+        monitor = new EventLoopMonitor(properties, meterRegistry, serverLoopResources);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        monitor.stop();
+        loopResources.dispose();
+    }
+
+    @Test
+    @DisplayName("probe counts one stall when a probe waits longer than the stall threshold")
+    public void probe_CountsStall_WhenLoopIsBlockedPastThreshold() throws InterruptedException {
+        properties.setStallThreshold(Duration.ofMillis(20));
+        monitor.start();
+        blockLoop();
+
+        monitor.probe();
+        Thread.sleep(100);
+        monitor.probe();
+        monitor.probe();
+
+        // the same waiting probe is one stall however often it is seen
+        Assertions.assertEquals(1, stalls());
+        release.countDown();
+        awaitLatencyRecorded();
+        Assertions.assertTrue(meterRegistry.get("eventloop.probe.latency").tag("group", "http").timer()
+                .max(TimeUnit.MILLISECONDS) >= 100);
+    }
+
+    @Test
+    @DisplayName("probe records latency without a stall when the wait stays under the threshold")
+    public void probe_DoesNotCountStall_WhenWaitIsUnderThreshold() throws InterruptedException {
+        properties.setStallThreshold(Duration.ofSeconds(10));
+        monitor.start();
+        blockLoop();
+
+        monitor.probe();
+        Thread.sleep(100);
+        monitor.probe();
+        release.countDown();
+        awaitLatencyRecorded();
+
+        Assertions.assertEquals(0, stalls());
+    }
+
+    @Test
+    @DisplayName("start and stop are idempotent and the loops are registered once")
+    public void startAndStop_AreIdempotent_WhenCalledTwice() {
+        monitor.start();
+        monitor.start();
+        Assertions.assertTrue(monitor.isRunning());
+        int loops = loops();
+
+        monitor.stop();
+        monitor.stop();
+        Assertions.assertFalse(monitor.isRunning());
+
+        monitor.setEnabled(true);
+        Assertions.assertTrue(monitor.isRunning());
+        Assertions.assertEquals(loops, loops());
+        monitor.setEnabled(false);
+        Assertions.assertFalse(monitor.isRunning());
+        Assertions.assertFalse((Boolean) monitor.status().get("enabled"));
+    }
+
+    private void blockLoop() {
+        // busy-waits: loop threads are non-blocking, BlockHound installed by other tests rejects await and onSpinWait
+        loopResources.onServer(true).next().execute(() -> {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (release.getCount() > 0 && System.nanoTime() < deadline) {
+                // spin
+            }
+        });
+    }
+
+    private void awaitLatencyRecorded() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("eventloop.probe.latency").tag("group", "http").timer().count() == 0) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "probe did not run within 5 seconds");
+            Thread.sleep(10);
+        }
+    }
+
+    private double stalls() {
+        return meterRegistry.get("eventloop.stalls").tag("group", "http").counter().count();
+    }
+
+    @SuppressWarnings("unchecked")
+    private int loops() {
+        return ((Map<String, Object>) monitor.status().get("loops")).size();
+    }
+}
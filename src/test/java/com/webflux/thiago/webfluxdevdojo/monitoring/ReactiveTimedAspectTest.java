@@ -0,0 +1,126 @@
+package com.webflux.thiago.webfluxdevdojo.monitoring;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.h2.H2ConnectionFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+class ReactiveTimedAspectTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(TimedConfig.class);
+
+    @Test
+    @DisplayName("time starts the timer at subscription, not when the publisher is assembled")
+    public void time_StartsAtSubscription_WhenPublisherIsAssembledEarlier(){
+        contextRunner.run(context -> {
+            Mono<String> assembled = context.getBean(TimedService.class).find();
+            Thread.sleep(200);
+
+            StepVerifier.create(assembled).expectNext("anime").verifyComplete();
+
+            Assertions.assertEquals(1, timer(context.getBean(MeterRegistry.class), "find", "success").count());
+            Assertions.assertTrue(timer(context.getBean(MeterRegistry.class), "find", "success")
+                    .totalTime(TimeUnit.MILLISECONDS) < 200);
+        });
+    }
+
+    @Test
+    @DisplayName("time tags the outcome as success, error or cancelled")
+    public void time_TagsOutcome_WhenPublisherTerminates(){
+        contextRunner.run(context -> {
+            TimedService service = context.getBean(TimedService.class);
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+
+            StepVerifier.create(service.find()).expectNext("anime").verifyComplete();
+            StepVerifier.create(service.fail()).expectError(IllegalStateException.class).verify();
+            StepVerifier.create(service.hang()).thenCancel().verify();
+
+            Assertions.assertEquals(1, timer(meterRegistry, "find", "success").count());
+            Assertions.assertEquals(0, timer(meterRegistry, "find", "error").count());
+            Assertions.assertEquals(1, timer(meterRegistry, "fail", "error").count());
+            Assertions.assertEquals(1, timer(meterRegistry, "hang", "cancelled").count());
+        });
+    }
+
+    @Test
+    @DisplayName("time keeps a reactive @Transactional method working and times it inside its transaction")
+    public void time_TimesTransactionalMethod_WhenTransactionProceedsLazily(){
+        contextRunner.run(context -> {
+            StepVerifier.create(context.getBean(TimedService.class).inTransaction())
+                    .expectNext(true)
+                    .verifyComplete();
+
+            Assertions.assertEquals(1, timer(context.getBean(MeterRegistry.class), "inTransaction", "success").count());
+        });
+    }
+
+    private static io.micrometer.core.instrument.Timer timer(MeterRegistry meterRegistry, String method, String outcome){
+        return meterRegistry.get("test.calls").tag("method", method).tag("outcome", outcome).timer();
+    }
+
+    @Configuration
+    @EnableAspectJAutoProxy(proxyTargetClass = true)
+    @EnableTransactionManagement
+    static class TimedConfig {
+        @Bean
+        MeterRegistry meterRegistry(){
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ReactiveTimedAspect reactiveTimedAspect(MeterRegistry meterRegistry){
+            return new ReactiveTimedAspect(meterRegistry);
+        }
+
+        @Bean
+        ReactiveTransactionManager transactionManager(){
+            return new R2dbcTransactionManager(H2ConnectionFactory.inMemory("timed-" + UUID.randomUUID()));
+        }
+
+        @Bean
+        TimedService timedService(){
+            return new TimedService();
+        }
+    }
+
+    @Timed("test.calls")
+    static class TimedService {
+        public Mono<String> find(){
+            return Mono.just("anime");
+        }
+
+        public Mono<String> fail(){
+            return Mono.error(new IllegalStateException("connection closed"));
+        }
+
+        public Mono<String> hang(){
+            return Mono.never();
+        }
+
+        @Transactional
+        public Flux<Boolean> inTransaction(){
+            return TransactionSynchronizationManager.forCurrentTransaction()
+                    .map(TransactionSynchronizationManager::isActualTransactionActive)
+                    .flux();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.webflux.thiago.webfluxdevdojo.service;
+
+import com.webflux.thiago.webfluxdevdojo.config.AnimeAutocompleteProperties;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeChangeStreamProperties;
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeChange;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeSuggestion;
+import com.webflux.thiago.webfluxdevdojo.repository.AnimeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.blockhound.BlockHound;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+@ExtendWith(SpringExtension.class)
+class AnimeAutocompleteTest {
+
+    @Mock
+    private AnimeRepository animeRepositoryMock;
+
+    private AnimeAutocompleteProperties properties;
+    private AnimeChangeStream animeChangeStream;
+    private AnimeAutocomplete animeAutocomplete;
+
+    @BeforeAll
+    public static void blockHoundSetUp(){
+        BlockHound.install(builder -> builder
+                .allowBlockingCallsInside("java.util.UUID", "randomUUID"));
+    }
+
+    @BeforeEach
+    public void setUp(){
+        BDDMockito.when(animeRepositoryMock.findAll()).thenReturn(Flux.just(
+                anime(1, "Naruto"), anime(2, "one piece"), anime(3, "Naruto Shippuden"), anime(4, "NANA")));
+        properties = new AnimeAutocompleteProperties();
+        properties.setEnabled(true);
+        animeChangeStream = new AnimeChangeStream(new AnimeChangeStreamProperties());
+        animeAutocomplete = new AnimeAutocomplete(properties, animeRepositoryMock, animeChangeStream, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    public void tearDown(){
+        animeAutocomplete.stop();
+    }
+
+    @Test
+    @DisplayName("suggest returns the loaded names starting with the prefix, ignoring case, in name order")
+    public void suggest_ReturnMatchesInNameOrder_WhenIndexIsLoaded(){
+        start();
+
+        Assertions.assertEquals(List.of(new AnimeSuggestion(4, "NANA"), new AnimeSuggestion(1, "Naruto"),
+                new AnimeSuggestion(3, "Naruto Shippuden")), animeAutocomplete.suggest("na", 10));
+        Assertions.assertEquals(List.of(new AnimeSuggestion(4, "NANA")), animeAutocomplete.suggest("NA", 1));
+        Assertions.assertEquals(List.of(), animeAutocomplete.suggest("z", 10));
+    }
+
+    @Test
+    @DisplayName("suggest follows creates, renames and deletes, also after they were merged into the index")
+    public void suggest_FollowsChanges_WhenAnimesAreWritten(){
+        properties.setMaxDeltaSize(3);
+        start();
+
+        animeChangeStream.created(List.of(anime(5, "Nausicaa"))).block();
+        animeChangeStream.updated(anime(1, "Bleach")).block();
+        await(() -> animeAutocomplete.suggest("b", 10).size() == 1);
+        Assertions.assertEquals(List.of(new AnimeSuggestion(4, "NANA"), new AnimeSuggestion(3, "Naruto Shippuden"),
+                new AnimeSuggestion(5, "Nausicaa")), animeAutocomplete.suggest("na", 10));
+
+        animeChangeStream.deleted(List.of(3)).block();
+        animeChangeStream.updated(anime(5, "Nausicaa of the Valley")).block();
+        // the changes apply in order, so once the rename shows the delete has been applied too
+        await(() -> animeAutocomplete.suggest("nau", 10).equals(List.of(new AnimeSuggestion(5, "Nausicaa of the Valley"))));
+        Assertions.assertEquals(List.of(new AnimeSuggestion(4, "NANA"), new AnimeSuggestion(5, "Nausicaa of the Valley")),
+                animeAutocomplete.suggest("na", 10));
+    }
+
+    @Test
+    @DisplayName("suggest reads the name of a change another instance made from the repository")
+    public void suggest_LoadsName_WhenChangeComesFromAnotherInstance(){
+        BDDMockito.when(animeRepositoryMock.findById(2)).thenReturn(Mono.just(anime(2, "One Punch Man")));
+        start();
+
+        animeChangeStream.publishRemote(List.of(AnimeChange.builder().type(AnimeChange.Type.UPDATED).animeId(2).build()));
+
+        await(() -> animeAutocomplete.suggest("one p", 10).equals(List.of(new AnimeSuggestion(2, "One Punch Man"))));
+    }
+
+    private void start(){
+        animeAutocomplete.start();
+        await(animeAutocomplete::isReady);
+    }
+
+    private static void await(BooleanSupplier condition){
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "condition not met within 5 seconds");
+            Thread.onSpinWait();
+        }
+    }
+
+    private static Anime anime(int id, String name){
+        return Anime.builder().id(id).name(name).build();
+    }
+}
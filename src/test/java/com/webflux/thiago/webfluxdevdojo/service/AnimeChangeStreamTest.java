@@ -0,0 +1,143 @@
+package com.webflux.thiago.webfluxdevdojo.service;
+
+import com.webflux.thiago.webfluxdevdojo.config.AnimeChangeStreamProperties;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeChange;
+import com.webflux.thiago.webfluxdevdojo.util.AnimeCreator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.blockhound.BlockHound;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+class AnimeChangeStreamTest {
+
+    private AnimeChangeStreamProperties properties;
+    private AnimeChangeStream animeChangeStream;
+
+    @BeforeAll
+    public static void blockHoundSetUp(){
+        BlockHound.install(builder -> builder
+                .allowBlockingCallsInside("java.util.UUID", "randomUUID"));
+    }
+
+    @BeforeEach
+    public void setUp(){
+        properties = new AnimeChangeStreamProperties();
+        properties.setRetainedEvents(3);
+        properties.setSubscriberBufferSize(2);
+        animeChangeStream = new AnimeChangeStream(properties);
+    }
+
+    @Test
+    @DisplayName("changes starts from now when there is no Last-Event-ID")
+    public void changes_SkipsRetainedChanges_WhenLastEventIdIsNull(){
+        animeChangeStream.deleted(List.of(1)).block();
+
+        StepVerifier.create(animeChangeStream.changes(null))
+                .then(() -> animeChangeStream.deleted(List.of(2)).block())
+                .expectNextMatches(change -> change.getId() == 2 && change.getAnimeId() == 2)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("changes replays the retained changes after Last-Event-ID")
+    public void changes_ReplaysRetainedChanges_WhenLastEventIdIsInWindow(){
+        animeChangeStream.deleted(List.of(1, 2, 3)).block();
+
+        StepVerifier.create(animeChangeStream.changes(1L))
+                .expectNextMatches(change -> change.getId() == 2)
+                .expectNextMatches(change -> change.getId() == 3)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("changes starts with a resync when Last-Event-ID already left the window")
+    public void changes_StartsWithResync_WhenLastEventIdLeftTheWindow(){
+        animeChangeStream.deleted(List.of(1, 2, 3, 4, 5)).block();
+
+        StepVerifier.create(animeChangeStream.changes(1L))
+                .expectNextMatches(change -> change.getType() == AnimeChange.Type.RESYNC && change.getId() == 2)
+                .expectNextMatches(change -> change.getId() == 3)
+                .expectNextMatches(change -> change.getId() == 4)
+                .expectNextMatches(change -> change.getId() == 5)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("changes starts with a resync from now when Last-Event-ID is ahead of this feed")
+    public void changes_StartsWithResync_WhenLastEventIdIsAheadOfTheFeed(){
+        animeChangeStream.deleted(List.of(1, 2)).block();
+
+        StepVerifier.create(animeChangeStream.changes(7L))
+                .expectNextMatches(change -> change.getType() == AnimeChange.Type.RESYNC && change.getId() == 2)
+                .then(() -> animeChangeStream.deleted(List.of(3)).block())
+                .expectNextMatches(change -> change.getId() == 3)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("events starts with a resync when Last-Event-ID comes from another epoch")
+    public void events_StartsWithResync_WhenLastEventIdIsFromAnotherEpoch(){
+        properties.setHeartbeatInterval(Duration.ofHours(1));
+        animeChangeStream.deleted(List.of(1)).block();
+
+        StepVerifier.create(animeChangeStream.events("restarted-1"))
+                .expectNextMatches(event -> "resync".equals(event.event()) && animeChangeStream.eventId(1).equals(event.id()))
+                .thenCancel()
+                .verify();
+        StepVerifier.create(animeChangeStream.events(animeChangeStream.eventId(0)))
+                .expectNextMatches(event -> "deleted".equals(event.event()) && animeChangeStream.eventId(1).equals(event.id()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("changes ends a subscriber that overflows its buffer when the strategy is ERROR")
+    public void changes_ReturnOverflowError_WhenSubscriberIsSlow(){
+        StepVerifier.create(animeChangeStream.changes(null), 0)
+                .then(() -> animeChangeStream.deleted(List.of(1, 2, 3)).block())
+                .thenRequest(2)
+                .expectNextMatches(change -> change.getId() == 1)
+                .expectNextMatches(change -> change.getId() == 2)
+                .expectErrorMatches(Exceptions::isOverflow)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("changes keeps the newest changes of a slow subscriber when the strategy is DROP_OLDEST")
+    public void changes_DropsOldest_WhenSubscriberIsSlow(){
+        properties.setOverflowStrategy(BufferOverflowStrategy.DROP_OLDEST);
+
+        StepVerifier.create(animeChangeStream.changes(null), 0)
+                .then(() -> animeChangeStream.deleted(List.of(1, 2, 3)).block())
+                .thenRequest(2)
+                .expectNextMatches(change -> change.getId() == 2)
+                .expectNextMatches(change -> change.getId() == 3)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("events maps changes to server-sent events and closes an overflowing stream")
+    public void events_CompletesStream_WhenSubscriberOverflows(){
+        properties.setHeartbeatInterval(Duration.ofHours(1));
+
+        StepVerifier.create(animeChangeStream.events(null), 1)
+                .then(() -> animeChangeStream.created(List.of(AnimeCreator.createValidAnime())).block())
+                .expectNextMatches(event -> animeChangeStream.eventId(1).equals(event.id()) && "created".equals(event.event()))
+                .then(() -> animeChangeStream.deleted(List.of(1, 2, 3, 4, 5, 6)).block())
+                .thenRequest(Long.MAX_VALUE)
+                .thenConsumeWhile(event -> true)
+                .verifyComplete();
+    }
+}
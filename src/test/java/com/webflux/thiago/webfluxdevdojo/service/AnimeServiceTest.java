@@ -1,39 +1,67 @@
 package com.webflux.thiago.webfluxdevdojo.service;
 
+import com.webflux.thiago.webfluxdevdojo.config.AnimeBatchProperties;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeChangeStreamProperties;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeCacheProperties;
+import com.webflux.thiago.webfluxdevdojo.config.ReactorTracingProperties;
 import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeBatchAck;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeChange;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeDeleteAck;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimePage;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeSearchMode;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeSuggestion;
+import com.webflux.thiago.webfluxdevdojo.monitoring.ReactorTracing;
 import com.webflux.thiago.webfluxdevdojo.repository.AnimeRepository;
 import com.webflux.thiago.webfluxdevdojo.util.AnimeCreator;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.h2.CloseableConnectionFactory;
+import io.r2dbc.h2.H2ConnectionFactory;
+import org.mockito.ArgumentMatcher;
 import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
 import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.blockhound.BlockHound;
 import reactor.blockhound.BlockingOperationError;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @ExtendWith(SpringExtension.class)
 class AnimeServiceTest {
 
-    @InjectMocks
     private AnimeService animeService;
 
     @Mock
     private AnimeRepository animeRepositoryMock;
 
+    @Mock
+    private AnimeAutocomplete animeAutocompleteMock;
+
     private final Anime anime = AnimeCreator.createValidAnime();
 
+    private final AnimeChangeStream animeChangeStream = new AnimeChangeStream(new AnimeChangeStreamProperties());
+
     @BeforeAll
     private static void blockHoundSetUp(){
         BlockHound.install(builder -> builder
@@ -57,6 +85,10 @@ class AnimeServiceTest {
 
     @BeforeEach
     public void setUp(){
+        animeService = new AnimeService(animeRepositoryMock,
+                new AnimeCache(new AnimeCacheProperties(), new SimpleMeterRegistry()),
+                new AnimeBatchProperties(), animeChangeStream, animeAutocompleteMock, new SimpleMeterRegistry());
+
         BDDMockito.when(animeRepositoryMock.findAll()).thenReturn(Flux.just(anime));
         BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
                 .thenReturn(Mono.just(anime));
@@ -64,9 +96,8 @@ class AnimeServiceTest {
         BDDMockito.when(animeRepositoryMock.save(AnimeCreator.createAnimeToBeSaved()))
                 .thenReturn(Mono.just(anime));
 
-        BDDMockito.when(animeRepositoryMock
-                .saveAll(List.of(AnimeCreator.createAnimeToBeSaved(), AnimeCreator.createAnimeToBeSaved())))
-                .thenReturn(Flux.just(anime, anime));
+        BDDMockito.when(animeRepositoryMock.insertAll(ArgumentMatchers.argThat(named("Yugi Oh", "Yugi Oh"))))
+                .thenReturn(Flux.just(1, 1));
 
         BDDMockito.when(animeRepositoryMock.delete(ArgumentMatchers.any(Anime.class)))
                 .thenReturn(Mono.empty());
@@ -74,6 +105,11 @@ class AnimeServiceTest {
         BDDMockito.when(animeRepositoryMock.save(AnimeCreator.createValidAnime()))
                 .thenReturn(Mono.empty());
 
+        BDDMockito.when(animeRepositoryMock.updateName(ArgumentMatchers.anyInt(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+                .thenReturn(Mono.just(1));
+
+        BDDMockito.when(animeRepositoryMock.removeById(ArgumentMatchers.anyInt())).thenReturn(Mono.just(1));
+
     }
 
     @Test
@@ -86,6 +122,93 @@ class AnimeServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("FindPage returns the next cursor when the page is full")
+    public void findPage_ReturnPageWithNextCursor_WhenPageIsFull(){
+        BDDMockito.when(animeRepositoryMock.findPageAfter(0, 1)).thenReturn(Flux.just(anime));
+
+        StepVerifier.create(animeService.findPage(0, 1))
+                .expectSubscription()
+                .expectNext(new AnimePage(List.of(anime), anime.getId()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("FindPage returns no next cursor on the last page")
+    public void findPage_ReturnPageWithoutNextCursor_WhenLastPage(){
+        BDDMockito.when(animeRepositoryMock.findPageAfter(0, 10)).thenReturn(Flux.just(anime));
+
+        StepVerifier.create(animeService.findPage(0, 10))
+                .expectSubscription()
+                .expectNext(new AnimePage(List.of(anime), null))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("FindPage return mono error when limit is out of range")
+    public void findPage_ReturnMonoError_WhenLimitIsInvalid(){
+        StepVerifier.create(animeService.findPage(0, AnimeService.MAX_PAGE_SIZE + 1))
+                .expectSubscription()
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Search in prefix mode matches the query literally")
+    public void search_EscapesLikeWildcards_WhenModeIsPrefix(){
+        BDDMockito.when(animeRepositoryMock.searchByNameLike("100\\% o\\_k%", 20)).thenReturn(Flux.just(anime));
+
+        StepVerifier.create(animeService.search(" 100% o_k ", AnimeSearchMode.PREFIX, 20))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Search in fulltext mode passes the query to the ranked search")
+    public void search_ReturnRankedAnimes_WhenModeIsFullText(){
+        BDDMockito.when(animeRepositoryMock.searchByNameFullText("naruto -boruto", 20)).thenReturn(Flux.just(anime));
+
+        StepVerifier.create(animeService.search("naruto -boruto", AnimeSearchMode.FULLTEXT, 20))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Search returns error when the query is blank or the limit is out of range")
+    public void search_ReturnFluxError_WhenQueryOrLimitIsInvalid(){
+        StepVerifier.create(animeService.search("  ", AnimeSearchMode.PREFIX, 20))
+                .expectError(ResponseStatusException.class)
+                .verify();
+        StepVerifier.create(animeService.search("naruto", AnimeSearchMode.PREFIX, AnimeService.MAX_PAGE_SIZE + 1))
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Autocomplete answers from the in-memory index once it is loaded")
+    public void autocomplete_ReturnSuggestionsFromIndex_WhenIndexIsReady(){
+        BDDMockito.when(animeAutocompleteMock.isReady()).thenReturn(true);
+        BDDMockito.when(animeAutocompleteMock.suggest("nar", 10)).thenReturn(List.of(new AnimeSuggestion(1, "Naruto")));
+
+        StepVerifier.create(animeService.autocomplete(" nar", 10))
+                .expectNext(List.of(new AnimeSuggestion(1, "Naruto")))
+                .verifyComplete();
+
+        Mockito.verify(animeRepositoryMock, Mockito.never()).searchByNameLike(ArgumentMatchers.anyString(), ArgumentMatchers.anyInt());
+    }
+
+    @Test
+    @DisplayName("Autocomplete falls back to a prefix search while the index is loading")
+    public void autocomplete_SearchesDatabase_WhenIndexIsNotReady(){
+        BDDMockito.when(animeRepositoryMock.searchByNameLike("nar%", 10)).thenReturn(Flux.just(anime));
+
+        StepVerifier.create(animeService.autocomplete("nar", 10))
+                .expectNext(List.of(new AnimeSuggestion(anime.getId(), anime.getName())))
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("FindById return a mono of anime when it exists")
     public void findById_ReturnAnimeMono_WhenSuccesful(){
@@ -108,6 +231,74 @@ class AnimeServiceTest {
                 .verify();
     }
 
+    @Test
+    @DisplayName("FindById error names the failing operation when tracing mode is checkpoint")
+    public void findById_ErrorHasCheckpoint_WhenTracingModeIsCheckpoint(){
+
+        BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.empty());
+
+        ReactorTracing.install(ReactorTracingProperties.Mode.CHECKPOINT);
+        try {
+            StepVerifier.create(animeService.findById(1))
+                    .expectErrorSatisfies(error -> Assertions.assertTrue(
+                            Arrays.stream(error.getSuppressed()).anyMatch(suppressed ->
+                                    suppressed.getMessage().contains("AnimeService.findById"))))
+                    .verify();
+        } finally {
+            ReactorTracing.install(ReactorTracingProperties.Mode.NONE);
+        }
+    }
+
+    @Test
+    @DisplayName("FindById queries the repository once for repeated reads of the same id")
+    public void findById_QueriesRepositoryOnce_WhenAnimeIsCached(){
+        StepVerifier.create(animeService.findById(1))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+        StepVerifier.create(animeService.findById(1))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+
+        Mockito.verify(animeRepositoryMock, Mockito.times(1)).findById(1);
+    }
+
+    @Test
+    @DisplayName("FindById caches not found results")
+    public void findById_QueriesRepositoryOnce_WhenAnimeDoesNotExist(){
+        BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(animeService.findById(1))
+                .expectError(ResponseStatusException.class)
+                .verify();
+        StepVerifier.create(animeService.findById(1))
+                .expectError(ResponseStatusException.class)
+                .verify();
+
+        Mockito.verify(animeRepositoryMock, Mockito.times(1)).findById(1);
+    }
+
+    @Test
+    @DisplayName("Save refreshes the cached anime")
+    public void save_RefreshesCachedAnime_WhenSuccesful(){
+        BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.empty());
+        StepVerifier.create(animeService.findById(1))
+                .expectError(ResponseStatusException.class)
+                .verify();
+
+        StepVerifier.create(animeService.save(AnimeCreator.createAnimeToBeSaved()))
+                .expectNext(anime)
+                .verifyComplete();
+
+        StepVerifier.create(animeService.findById(1))
+                .expectNext(anime)
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("Save creates anime when succesful")
     public void save_CreatesAnime_WhenSuccesful(){
@@ -125,20 +316,119 @@ class AnimeServiceTest {
 
         StepVerifier.create(animeService.saveAll(List.of(animeToBeSaved, animeToBeSaved)))
                 .expectSubscription()
-                .expectNext(anime, anime)
+                .expectNextMatches(saved -> isInserted(saved, 1, "Yugi Oh"))
+                .expectNextMatches(saved -> isInserted(saved, 1, "Yugi Oh"))
                 .verifyComplete();
     }
 
     @Test
-    @DisplayName("SaveAll return mono error when name is invalid")
+    @DisplayName("SaveAll writes the list in chunks and keeps the generated ids in order")
+    public void saveAll_InsertsInChunks_WhenListIsLargerThanChunkSize(){
+        AnimeBatchProperties batchProperties = new AnimeBatchProperties();
+        batchProperties.setChunkSize(2);
+        animeService = new AnimeService(animeRepositoryMock,
+                new AnimeCache(new AnimeCacheProperties(), new SimpleMeterRegistry()), batchProperties, animeChangeStream, animeAutocompleteMock, new SimpleMeterRegistry());
+        Anime first = AnimeCreator.createAnimeToBeSaved().withName("first");
+        Anime second = AnimeCreator.createAnimeToBeSaved().withName("second");
+        Anime third = AnimeCreator.createAnimeToBeSaved().withName("third");
+        BDDMockito.when(animeRepositoryMock.insertAll(ArgumentMatchers.argThat(named("first", "second"))))
+                .thenReturn(Flux.just(10, 11));
+        BDDMockito.when(animeRepositoryMock.insertAll(ArgumentMatchers.argThat(named("third"))))
+                .thenReturn(Flux.just(12));
+
+        StepVerifier.create(animeService.saveAll(List.of(first, second, third)))
+                .expectSubscription()
+                .expectNextMatches(saved -> isInserted(saved, 10, "first"))
+                .expectNextMatches(saved -> isInserted(saved, 11, "second"))
+                .expectNextMatches(saved -> isInserted(saved, 12, "third"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("SaveAll return mono error before writing anything when name is invalid")
     public void saveAll_ReturnMonoError_WhenNameIsInvalid(){
         Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
-        BDDMockito.when(animeRepositoryMock.saveAll(ArgumentMatchers.anyIterable()))
-                .thenReturn(Flux.just(anime, anime.withName("")));
 
         StepVerifier.create(animeService.saveAll(List.of(animeToBeSaved, animeToBeSaved.withName(""))))
                 .expectSubscription()
-                .expectNext(anime)
+                .expectError(ResponseStatusException.class)
+                .verify();
+
+        Mockito.verify(animeRepositoryMock, Mockito.never()).insertAll(ArgumentMatchers.anyList());
+    }
+
+    @Test
+    @DisplayName("SaveAll return mono error before writing anything when a name is longer than the column")
+    public void saveAll_ReturnMonoError_WhenNameIsTooLong(){
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+
+        StepVerifier.create(animeService.saveAll(List.of(animeToBeSaved,
+                        animeToBeSaved.withName("a".repeat(AnimeService.MAX_NAME_LENGTH + 1)))))
+                .expectSubscription()
+                .expectError(ResponseStatusException.class)
+                .verify();
+
+        Mockito.verify(animeRepositoryMock, Mockito.never()).insertAll(ArgumentMatchers.anyList());
+    }
+
+    @Test
+    @DisplayName("SaveAll caches nothing from chunks a failed later chunk rolled back")
+    public void saveAll_DoesNotCacheAnimes_WhenTransactionRollsBack(){
+        AnimeBatchProperties batchProperties = new AnimeBatchProperties();
+        batchProperties.setChunkSize(1);
+        animeService = new AnimeService(animeRepositoryMock,
+                new AnimeCache(new AnimeCacheProperties(), new SimpleMeterRegistry()), batchProperties, animeChangeStream, animeAutocompleteMock, new SimpleMeterRegistry());
+        Anime first = AnimeCreator.createAnimeToBeSaved().withName("first");
+        Anime second = AnimeCreator.createAnimeToBeSaved().withName("second");
+        BDDMockito.when(animeRepositoryMock.insertAll(ArgumentMatchers.argThat(named("first"))))
+                .thenReturn(Flux.just(10));
+        BDDMockito.when(animeRepositoryMock.insertAll(ArgumentMatchers.argThat(named("second"))))
+                .thenReturn(Flux.error(new IllegalStateException("value too long")));
+        BDDMockito.when(animeRepositoryMock.findById(10)).thenReturn(Mono.empty());
+        CloseableConnectionFactory connectionFactory = H2ConnectionFactory.inMemory("saveAll-" + UUID.randomUUID());
+        TransactionalOperator transaction = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+
+        StepVerifier.create(transaction.transactional(animeService.saveAll(List.of(first, second))))
+                .expectSubscription()
+                .expectNextMatches(saved -> isInserted(saved, 10, "first"))
+                .expectError(IllegalStateException.class)
+                .verify();
+        StepVerifier.create(animeService.findById(10))
+                .expectError(ResponseStatusException.class)
+                .verify();
+
+        Mockito.verify(animeRepositoryMock).findById(10);
+        connectionFactory.close();
+    }
+
+    @Test
+    @DisplayName("SaveStream acknowledges every written chunk in order")
+    public void saveStream_AcknowledgesChunks_WhenSuccesful(){
+        AnimeBatchProperties batchProperties = new AnimeBatchProperties();
+        batchProperties.setChunkSize(2);
+        animeService = new AnimeService(animeRepositoryMock,
+                new AnimeCache(new AnimeCacheProperties(), new SimpleMeterRegistry()), batchProperties, animeChangeStream, animeAutocompleteMock, new SimpleMeterRegistry());
+        Anime first = AnimeCreator.createAnimeToBeSaved().withName("first");
+        Anime second = AnimeCreator.createAnimeToBeSaved().withName("second");
+        Anime third = AnimeCreator.createAnimeToBeSaved().withName("third");
+        BDDMockito.when(animeRepositoryMock.insertAll(ArgumentMatchers.argThat(named("first", "second"))))
+                .thenReturn(Flux.just(10, 11));
+        BDDMockito.when(animeRepositoryMock.insertAll(ArgumentMatchers.argThat(named("third"))))
+                .thenReturn(Flux.just(12));
+
+        StepVerifier.create(animeService.saveStream(Flux.just(first, second, third)))
+                .expectSubscription()
+                .expectNext(new AnimeBatchAck(0, 2, List.of(10, 11)), new AnimeBatchAck(1, 1, List.of(12)))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("SaveStream return flux error when a streamed name is invalid")
+    public void saveStream_ReturnFluxError_WhenNameIsInvalid(){
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+
+        StepVerifier.create(animeService.saveStream(Flux.just(animeToBeSaved, animeToBeSaved.withName(""))))
+                .expectSubscription()
                 .expectError(ResponseStatusException.class)
                 .verify();
     }
@@ -154,14 +444,97 @@ class AnimeServiceTest {
     @Test
     @DisplayName("Delete return mono error when anime doesnt exist")
     public void delete_ReturnMonoError_WhenAnimeDoesntExist(){
-        BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
-                .thenReturn(Mono.empty());
+        BDDMockito.when(animeRepositoryMock.removeById(ArgumentMatchers.anyInt())).thenReturn(Mono.just(0));
         StepVerifier.create(animeService.delete(1))
                 .expectSubscription()
                 .expectError(ResponseStatusException.class)
                 .verify();
     }
 
+    @Test
+    @DisplayName("delete runs a single statement without reading the anime first")
+    public void delete_DoesNotReadAnime_WhenSuccesful(){
+        StepVerifier.create(animeService.delete(1))
+                .expectSubscription()
+                .verifyComplete();
+
+        Mockito.verify(animeRepositoryMock, Mockito.never()).findById(ArgumentMatchers.anyInt());
+        Mockito.verify(animeRepositoryMock, Mockito.never()).delete(ArgumentMatchers.any(Anime.class));
+    }
+
+    @Test
+    @DisplayName("deleteAll returns the number of deleted animes and evicts them from the cache")
+    public void deleteAll_ReturnDeletedCount_WhenSuccesful(){
+        AnimeCacheProperties cacheProperties = new AnimeCacheProperties();
+        cacheProperties.setEnabled(true);
+        animeService = new AnimeService(animeRepositoryMock,
+                new AnimeCache(cacheProperties, new SimpleMeterRegistry()),
+                new AnimeBatchProperties(), animeChangeStream, animeAutocompleteMock, new SimpleMeterRegistry());
+        animeService.findById(1).block();
+        BDDMockito.when(animeRepositoryMock.removeByIdIn(List.of(1, 2, 3))).thenReturn(Mono.just(2));
+
+        StepVerifier.create(animeService.deleteAll(List.of(1, 2, 3)))
+                .expectSubscription()
+                .expectNext(new AnimeDeleteAck(2))
+                .verifyComplete();
+        animeService.findById(1).block();
+
+        Mockito.verify(animeRepositoryMock, Mockito.times(2)).findById(1);
+    }
+
+    @Test
+    @DisplayName("findById shares one repository read between concurrent calls when the cache is disabled")
+    public void findById_SharesRepositoryRead_WhenCallsOverlap(){
+        AnimeCacheProperties cacheProperties = new AnimeCacheProperties();
+        cacheProperties.setEnabled(false);
+        animeService = new AnimeService(animeRepositoryMock,
+                new AnimeCache(cacheProperties, new SimpleMeterRegistry()),
+                new AnimeBatchProperties(), animeChangeStream, animeAutocompleteMock, new SimpleMeterRegistry());
+        Sinks.One<Anime> found = Sinks.one();
+        BDDMockito.when(animeRepositoryMock.findById(1)).thenReturn(found.asMono());
+
+        StepVerifier first = StepVerifier.create(animeService.findById(1)).expectNext(anime).expectComplete().verifyLater();
+        StepVerifier second = StepVerifier.create(animeService.findById(1)).expectNext(anime).expectComplete().verifyLater();
+        found.tryEmitValue(anime);
+
+        first.verify(Duration.ofSeconds(5));
+        second.verify(Duration.ofSeconds(5));
+        Mockito.verify(animeRepositoryMock, Mockito.times(1)).findById(1);
+    }
+
+    @Test
+    @DisplayName("deleteAll returns bad request when more ids than a page are given")
+    public void deleteAll_ReturnBadRequest_WhenTooManyIds(){
+        List<Integer> ids = IntStream.rangeClosed(1, AnimeService.MAX_PAGE_SIZE + 1).boxed().collect(Collectors.toList());
+
+        StepVerifier.create(animeService.deleteAll(ids))
+                .expectSubscription()
+                .expectError(ResponseStatusException.class)
+                .verify();
+
+        Mockito.verify(animeRepositoryMock, Mockito.never()).removeByIdIn(ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("deleteBetween returns the number of deleted animes when succesful")
+    public void deleteBetween_ReturnDeletedCount_WhenSuccesful(){
+        BDDMockito.when(animeRepositoryMock.removeByIdBetween(10, 20)).thenReturn(Mono.just(11));
+
+        StepVerifier.create(animeService.deleteBetween(10, 20))
+                .expectSubscription()
+                .expectNext(new AnimeDeleteAck(11))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("deleteBetween returns bad request when from is greater than to")
+    public void deleteBetween_ReturnBadRequest_WhenRangeIsReversed(){
+        StepVerifier.create(animeService.deleteBetween(20, 10))
+                .expectSubscription()
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+
     @Test
     @DisplayName("update save updated anime and return empty mono when succesful")
     public void update_SavesUpdatedAnime_WhenSuccesful(){
@@ -170,17 +543,143 @@ class AnimeServiceTest {
                 .expectSubscription()
                 .expectNext()
                 .verifyComplete();
+
+        Mockito.verify(animeRepositoryMock, Mockito.never()).findById(ArgumentMatchers.anyInt());
+    }
+
+    @Test
+    @DisplayName("update only applies on top of the version carried by the anime")
+    public void update_UpdatesIfVersion_WhenAnimeHasVersion(){
+        BDDMockito.when(animeRepositoryMock.updateNameIfVersion(ArgumentMatchers.eq(1), ArgumentMatchers.eq(List.of(3)),
+                        ArgumentMatchers.eq(anime.getName()), ArgumentMatchers.any()))
+                .thenReturn(Mono.just(1));
+
+        StepVerifier.create(animeService.update(anime.withVersion(3)))
+                .expectSubscription()
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("update returns conflict when the anime carries a stale version")
+    public void update_ReturnConflict_WhenVersionIsStale(){
+        BDDMockito.when(animeRepositoryMock.updateNameIfVersion(ArgumentMatchers.anyInt(), ArgumentMatchers.any(),
+                        ArgumentMatchers.any(), ArgumentMatchers.any()))
+                .thenReturn(Mono.just(0));
+        BDDMockito.when(animeRepositoryMock.existsById(1)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(animeService.update(anime.withVersion(3)))
+                .expectSubscription()
+                .expectErrorMatches(error -> error instanceof ResponseStatusException
+                        && ((ResponseStatusException) error).getStatus() == HttpStatus.CONFLICT)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("updateIfMatch returns precondition failed when no If-Match version is current")
+    public void updateIfMatch_ReturnPreconditionFailed_WhenVersionIsStale(){
+        BDDMockito.when(animeRepositoryMock.updateNameIfVersion(ArgumentMatchers.anyInt(), ArgumentMatchers.any(),
+                        ArgumentMatchers.any(), ArgumentMatchers.any()))
+                .thenReturn(Mono.just(0));
+        BDDMockito.when(animeRepositoryMock.existsById(1)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(animeService.updateIfMatch(anime, List.of(2, 3)))
+                .expectSubscription()
+                .expectErrorMatches(error -> error instanceof ResponseStatusException
+                        && ((ResponseStatusException) error).getStatus() == HttpStatus.PRECONDITION_FAILED)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("updateIfExists returns precondition failed instead of not found when the anime does not exist")
+    public void updateIfExists_ReturnPreconditionFailed_WhenAnimeDoesNotExist(){
+        BDDMockito.when(animeRepositoryMock.updateName(ArgumentMatchers.anyInt(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+                .thenReturn(Mono.just(0));
+
+        StepVerifier.create(animeService.updateIfExists(anime))
+                .expectSubscription()
+                .expectErrorMatches(error -> error instanceof ResponseStatusException
+                        && ((ResponseStatusException) error).getStatus() == HttpStatus.PRECONDITION_FAILED)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("update evicts the cached anime when succesful")
+    public void update_EvictsCachedAnime_WhenSuccesful(){
+        AnimeCacheProperties cacheProperties = new AnimeCacheProperties();
+        cacheProperties.setEnabled(true);
+        animeService = new AnimeService(animeRepositoryMock,
+                new AnimeCache(cacheProperties, new SimpleMeterRegistry()),
+                new AnimeBatchProperties(), animeChangeStream, animeAutocompleteMock, new SimpleMeterRegistry());
+        animeService.findById(1).block();
+
+        animeService.update(AnimeCreator.createAnimeUpdated()).block();
+        animeService.findById(1).block();
+
+        Mockito.verify(animeRepositoryMock, Mockito.times(2)).findById(1);
     }
 
     @Test
     @DisplayName("Update return mono error when anime doesnt exist")
     public void update_ReturnMonoError_WhenAnimeDoesntExist(){
-        BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
-                .thenReturn(Mono.empty());
+        BDDMockito.when(animeRepositoryMock.updateName(ArgumentMatchers.anyInt(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+                .thenReturn(Mono.just(0));
         StepVerifier.create(animeService.update(AnimeCreator.createValidAnime()))
                 .expectSubscription()
-                .expectError(ResponseStatusException.class)
+                .expectErrorMatches(error -> error instanceof ResponseStatusException
+                        && ((ResponseStatusException) error).getStatus() == HttpStatus.NOT_FOUND)
                 .verify();
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("update returns not found when a versioned anime doesnt exist")
+    public void update_ReturnNotFound_WhenVersionedAnimeDoesntExist(){
+        BDDMockito.when(animeRepositoryMock.updateNameIfVersion(ArgumentMatchers.anyInt(), ArgumentMatchers.any(),
+                        ArgumentMatchers.any(), ArgumentMatchers.any()))
+                .thenReturn(Mono.just(0));
+        BDDMockito.when(animeRepositoryMock.existsById(1)).thenReturn(Mono.just(false));
+
+        StepVerifier.create(animeService.update(anime.withVersion(3)))
+                .expectSubscription()
+                .expectErrorMatches(error -> error instanceof ResponseStatusException
+                        && ((ResponseStatusException) error).getStatus() == HttpStatus.NOT_FOUND)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("save, update and delete publish their changes in order")
+    public void writes_PublishChanges_WhenSuccesful(){
+        StepVerifier.create(animeChangeStream.changes(null).take(3))
+                .then(() -> {
+                    animeService.save(AnimeCreator.createAnimeToBeSaved()).block();
+                    animeService.update(AnimeCreator.createAnimeUpdated()).block();
+                    animeService.delete(1).block();
+                })
+                .expectNextMatches(change -> change.getType() == AnimeChange.Type.CREATED && change.getAnime().equals(anime))
+                .expectNextMatches(change -> change.getType() == AnimeChange.Type.UPDATED
+                        && change.getAnime().getName().equals(AnimeCreator.createAnimeUpdated().getName()))
+                .expectNextMatches(change -> change.getType() == AnimeChange.Type.DELETED && change.getAnimeId() == 1)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("delete publishes nothing when the anime doesnt exist")
+    public void delete_PublishesNothing_WhenAnimeDoesntExist(){
+        BDDMockito.when(animeRepositoryMock.removeById(ArgumentMatchers.anyInt())).thenReturn(Mono.just(0));
+
+        StepVerifier.create(animeChangeStream.changes(null))
+                .then(() -> animeService.delete(1).onErrorResume(e -> Mono.empty()).block())
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenCancel()
+                .verify();
+    }
+
+    private static ArgumentMatcher<List<Anime>> named(String... names){
+        return chunk -> chunk != null && chunk.stream().map(Anime::getName).collect(Collectors.toList())
+                .equals(List.of(names));
+    }
+
+    private static boolean isInserted(Anime saved, int id, String name){
+        return saved.getId() == id && saved.getName().equals(name)
+                && saved.getVersion() == 0 && saved.getUpdatedAt() != null;
+    }
+}
@@ -0,0 +1,94 @@
+package com.webflux.thiago.webfluxdevdojo.service;
+
+import com.webflux.thiago.webfluxdevdojo.config.ApplicationUserCacheProperties;
+import com.webflux.thiago.webfluxdevdojo.domain.ApplicationUser;
+import com.webflux.thiago.webfluxdevdojo.repository.ApplicationUserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.blockhound.BlockHound;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(SpringExtension.class)
+class ApplicationUserServiceTest {
+
+    private ApplicationUserService applicationUserService;
+
+    private ApplicationUserCache applicationUserCache;
+
+    @Mock
+    private ApplicationUserRepository applicationUserRepositoryMock;
+
+    @Mock
+    private ClusterNotifications clusterNotificationsMock;
+
+    private final ApplicationUser user =
+            new ApplicationUser(1, "Thiago", "thiago", "{noop}devdojo", "ROLE_USER,ROLE_ADMIN");
+
+    @BeforeAll
+    public static void blockHoundSetUp(){
+        BlockHound.install(builder -> builder
+                .allowBlockingCallsInside("java.util.UUID", "randomUUID"));
+    }
+
+    @BeforeEach
+    public void setUp(){
+        applicationUserCache = new ApplicationUserCache(new ApplicationUserCacheProperties(), new SimpleMeterRegistry());
+        applicationUserService = new ApplicationUserService(applicationUserRepositoryMock, applicationUserCache, clusterNotificationsMock);
+
+        BDDMockito.when(applicationUserRepositoryMock.findByUsername("thiago")).thenReturn(Mono.just(user));
+        BDDMockito.when(applicationUserRepositoryMock.save(user)).thenReturn(Mono.just(user));
+    }
+
+    @Test
+    @DisplayName("FindByUsername queries the repository only once for the same user")
+    public void findByUsername_QueriesRepositoryOnce_WhenUserIsCached(){
+        StepVerifier.create(applicationUserService.findByUsername("thiago"))
+                .expectNext(user)
+                .verifyComplete();
+        StepVerifier.create(applicationUserService.findByUsername("thiago"))
+                .expectNext(user)
+                .verifyComplete();
+
+        Mockito.verify(applicationUserRepositoryMock, Mockito.times(1)).findByUsername("thiago");
+    }
+
+    @Test
+    @DisplayName("FindByUsername returns empty mono and caches nothing when user does not exist")
+    public void findByUsername_ReturnEmptyMono_WhenUserDoesNotExist(){
+        BDDMockito.when(applicationUserRepositoryMock.findByUsername("nobody")).thenReturn(Mono.empty());
+
+        StepVerifier.create(applicationUserService.findByUsername("nobody"))
+                .verifyComplete();
+
+        Assertions.assertTrue(applicationUserCache.findUser("nobody").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Save evicts cached users so the next lookup hits the repository")
+    public void save_EvictsCachedUser_WhenSuccesful(){
+        StepVerifier.create(applicationUserService.findByUsername("thiago"))
+                .expectNext(user)
+                .verifyComplete();
+
+        StepVerifier.create(applicationUserService.save(user))
+                .expectNext(user)
+                .verifyComplete();
+
+        StepVerifier.create(applicationUserService.findByUsername("thiago"))
+                .expectNext(user)
+                .verifyComplete();
+
+        Mockito.verify(applicationUserRepositoryMock, Mockito.times(2)).findByUsername("thiago");
+        Mockito.verify(clusterNotificationsMock).allUsersChanged();
+    }
+}
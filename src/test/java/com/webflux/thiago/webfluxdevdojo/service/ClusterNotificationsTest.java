@@ -0,0 +1,224 @@
+package com.webflux.thiago.webfluxdevdojo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeCacheProperties;
+import com.webflux.thiago.webfluxdevdojo.config.AnimeChangeStreamProperties;
+import com.webflux.thiago.webfluxdevdojo.config.ApplicationUserCacheProperties;
+import com.webflux.thiago.webfluxdevdojo.config.ClusterNotificationProperties;
+import com.webflux.thiago.webfluxdevdojo.domain.Anime;
+import com.webflux.thiago.webfluxdevdojo.domain.AnimeChange;
+import com.webflux.thiago.webfluxdevdojo.domain.ClusterNotification;
+import com.webflux.thiago.webfluxdevdojo.util.AnimeCreator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.core.userdetails.User;
+import reactor.blockhound.BlockHound;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+class ClusterNotificationsTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private ClusterNotificationProperties properties;
+    private R2dbcProperties r2dbcProperties;
+    private AnimeCache animeCache;
+    private ApplicationUserCache applicationUserCache;
+    private AnimeChangeStream animeChangeStream;
+    private DatabaseClient databaseClient;
+    private ClusterNotifications clusterNotifications;
+
+    @BeforeAll
+    public static void blockHoundSetUp(){
+        BlockHound.install(builder -> builder
+                .allowBlockingCallsInside("java.util.UUID", "randomUUID"));
+    }
+
+    @BeforeEach
+    public void setUp(){
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        animeCache = new AnimeCache(new AnimeCacheProperties(), meterRegistry);
+        applicationUserCache = new ApplicationUserCache(new ApplicationUserCacheProperties(), meterRegistry);
+        animeChangeStream = new AnimeChangeStream(new AnimeChangeStreamProperties());
+        properties = new ClusterNotificationProperties();
+        r2dbcProperties = new R2dbcProperties();
+        databaseClient = Mockito.mock(DatabaseClient.class);
+        clusterNotifications = new ClusterNotifications(properties, r2dbcProperties,
+                databaseClient, objectMapper, animeCache, applicationUserCache, animeChangeStream,
+                meterRegistry);
+    }
+
+    @Test
+    @DisplayName("coalesce keeps the last change of each anime and each user once")
+    public void coalesce_MergesBatch_WhenAnimesAndUsersRepeat(){
+        List<ClusterNotification> notifications = ClusterNotifications.coalesce(objectMapper, "node", List.of(
+                animes(change(AnimeChange.Type.CREATED, 1)),
+                animes(change(AnimeChange.Type.UPDATED, 1)),
+                animes(change(AnimeChange.Type.DELETED, 2)),
+                ClusterNotification.builder().users(List.of("thiago")).build(),
+                ClusterNotification.builder().users(List.of("thiago")).build()), 7999);
+
+        Assertions.assertEquals(1, notifications.size());
+        Assertions.assertEquals("node", notifications.get(0).getNode());
+        Assertions.assertEquals(List.of(change(AnimeChange.Type.UPDATED, 1), change(AnimeChange.Type.DELETED, 2)),
+                notifications.get(0).getAnimes());
+        Assertions.assertEquals(List.of("thiago"), notifications.get(0).getUsers());
+    }
+
+    @Test
+    @DisplayName("coalesce splits a batch so no payload reaches the 8000 bytes NOTIFY accepts")
+    public void coalesce_SplitsBatch_WhenPayloadWouldExceedMaxPayloadBytes() throws Exception {
+        List<AnimeChange> changes = new ArrayList<>();
+        List<String> users = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            changes.add(change(AnimeChange.Type.DELETED, 1_000_000 + i));
+            users.add(String.format("%0100d", i));
+        }
+
+        List<ClusterNotification> notifications = ClusterNotifications.coalesce(objectMapper, UUID.randomUUID().toString(),
+                List.of(ClusterNotification.builder().animes(changes).users(users).build()), 7999);
+
+        Assertions.assertTrue(notifications.size() > 1);
+        for (ClusterNotification notification : notifications) {
+            Assertions.assertTrue(objectMapper.writeValueAsBytes(notification).length <= 7999);
+        }
+        Assertions.assertEquals(changes, notifications.stream()
+                .flatMap(notification -> notification.getAnimes().stream()).collect(Collectors.toList()));
+        Assertions.assertEquals(users, notifications.stream()
+                .flatMap(notification -> notification.getUsers().stream()).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("coalesce sends all users only in the first notification of a split batch")
+    public void coalesce_SetsAllUsersOnce_WhenBatchIsSplit(){
+        List<ClusterNotification> notifications = ClusterNotifications.coalesce(objectMapper, "node", List.of(
+                animes(change(AnimeChange.Type.DELETED, 1), change(AnimeChange.Type.DELETED, 2),
+                        change(AnimeChange.Type.DELETED, 3)),
+                ClusterNotification.builder().users(List.of("thiago")).build(),
+                ClusterNotification.builder().allUsers(true).build()), 200);
+
+        Assertions.assertTrue(notifications.size() > 1);
+        Assertions.assertTrue(notifications.get(0).isAllUsers());
+        Assertions.assertTrue(notifications.stream().skip(1).noneMatch(ClusterNotification::isAllUsers));
+        Assertions.assertTrue(notifications.stream().allMatch(notification -> notification.getUsers().isEmpty()));
+    }
+
+    @Test
+    @DisplayName("coalesce replaces single anime changes with a resync when the batch has one")
+    public void coalesce_ReturnsAllAnimes_WhenBatchHasResync(){
+        List<ClusterNotification> notifications = ClusterNotifications.coalesce(objectMapper, "node", List.of(
+                animes(change(AnimeChange.Type.DELETED, 1)),
+                ClusterNotification.builder().allAnimes(true).build()), 7999);
+
+        Assertions.assertEquals(1, notifications.size());
+        Assertions.assertTrue(notifications.get(0).isAllAnimes());
+        Assertions.assertTrue(notifications.get(0).getAnimes().isEmpty());
+    }
+
+    @Test
+    @DisplayName("dispatch drops what another instance changed and replays it into the change stream")
+    public void dispatch_InvalidatesCachesAndPublishesChanges_WhenNotificationIsFromAnotherNode() throws Exception {
+        Anime anime = AnimeCreator.createValidAnime();
+        Anime updated = AnimeCreator.createAnimeUpdated();
+        animeCache.put(anime);
+        applicationUserCache.putUser(User.withUsername("thiago").password("{noop}devdojo").roles("USER").build());
+        String payload = objectMapper.writeValueAsString(ClusterNotification.builder()
+                .node("another node")
+                .animes(List.of(change(AnimeChange.Type.UPDATED, anime.getId())))
+                .users(List.of("thiago"))
+                .build());
+
+        StepVerifier.create(animeChangeStream.changes(null))
+                .then(() -> clusterNotifications.dispatch(payload))
+                .expectNextMatches(change -> change.getType() == AnimeChange.Type.UPDATED
+                        && change.getAnimeId().equals(anime.getId()) && change.getAnime() == null)
+                .thenCancel()
+                .verify();
+
+        StepVerifier.create(animeCache.get(anime.getId(), id -> Mono.just(updated)))
+                .expectNext(updated)
+                .verifyComplete();
+        Assertions.assertTrue(applicationUserCache.findUser("thiago").isEmpty());
+    }
+
+    @Test
+    @DisplayName("notifications collapses dropped batches into one notification that everything changed")
+    public void notifications_ReturnsAllAnimesAndUsers_WhenPendingBatchesOverflow(){
+        properties.setBatchSize(1);
+        properties.setMaxPendingBatches(2);
+        Sinks.Many<ClusterNotification> changes = Sinks.many().unicast().onBackpressureBuffer();
+
+        // nothing is requested while the ten changes arrive, so only the first batches are kept
+        StepVerifier.create(clusterNotifications.notifications(changes.asFlux()), 0)
+                .then(() -> {
+                    for (int animeId = 1; animeId <= 10; animeId++) {
+                        changes.tryEmitNext(animes(change(AnimeChange.Type.DELETED, animeId)));
+                    }
+                    changes.tryEmitComplete();
+                })
+                .thenRequest(Long.MAX_VALUE)
+                .recordWith(ArrayList::new)
+                .thenConsumeWhile(notification -> true)
+                .expectRecordedMatches(notifications -> notifications.size() < 10
+                        && notifications.stream().anyMatch(notification -> notification.isAllAnimes() && notification.isAllUsers()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("send failing makes the next notification tell the others everything changed")
+    public void notifications_ReturnsAllAnimesAndUsers_WhenSendFailed(){
+        BDDMockito.when(databaseClient.sql(ArgumentMatchers.anyString()))
+                .thenThrow(new IllegalStateException("payload string too long"));
+
+        StepVerifier.create(clusterNotifications.send(animes(change(AnimeChange.Type.DELETED, 1))))
+                .verifyComplete();
+
+        StepVerifier.create(clusterNotifications.notifications(Flux.just(animes(change(AnimeChange.Type.DELETED, 2)))))
+                .expectNextMatches(notification -> notification.isAllAnimes() && notification.isAllUsers())
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("start leaves the notifications stopped when the listener fails for good")
+    public void start_IsNotRunning_WhenListenerFailsNonTransiently() throws InterruptedException {
+        properties.setEnabled(true);
+        r2dbcProperties.setUrl("r2dbc:h2:mem:///cluster-notifications-" + UUID.randomUUID());
+        r2dbcProperties.setUsername("sa");
+        r2dbcProperties.setPassword("");
+
+        clusterNotifications.start();
+
+        // H2 has no LISTEN, which is a non-transient failure
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (clusterNotifications.isRunning()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "still running after 5 seconds");
+            Thread.sleep(10);
+        }
+        clusterNotifications.stop();
+    }
+
+    private static ClusterNotification animes(AnimeChange... changes){
+        return ClusterNotification.builder().animes(List.of(changes)).build();
+    }
+
+    private static AnimeChange change(AnimeChange.Type type, int animeId){
+        return AnimeChange.builder().type(type).animeId(animeId).build();
+    }
+}
@@ -0,0 +1,111 @@
+package com.webflux.thiago.webfluxdevdojo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.blockhound.BlockHound;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger subscriptions = new AtomicInteger();
+    private final AtomicInteger cancellations = new AtomicInteger();
+    private SingleFlight<Integer, String> singleFlight;
+    private Sinks.One<String> result;
+
+    @BeforeAll
+    public static void blockHoundSetUp(){
+        BlockHound.install(builder -> builder
+                .allowBlockingCallsInside("java.util.UUID", "randomUUID"));
+    }
+
+    @BeforeEach
+    public void setUp(){
+        singleFlight = new SingleFlight<>("test", meterRegistry);
+        result = Sinks.one();
+    }
+
+    @Test
+    @DisplayName("execute shares one read between concurrent calls for the same key and counts the dedup")
+    public void execute_SharesRead_WhenCallsOverlap(){
+        StepVerifier first = StepVerifier.create(singleFlight.execute(1, this::read)).expectNext("anime").expectComplete().verifyLater();
+        StepVerifier second = StepVerifier.create(singleFlight.execute(1, this::read)).expectNext("anime").expectComplete().verifyLater();
+
+        result.tryEmitValue("anime");
+
+        first.verify(Duration.ofSeconds(5));
+        second.verify(Duration.ofSeconds(5));
+        Assertions.assertEquals(1, subscriptions.get());
+        Assertions.assertEquals(1, meterRegistry.get("singleflight.calls").tag("result", "executed").counter().count());
+        Assertions.assertEquals(1, meterRegistry.get("singleflight.calls").tag("result", "shared").counter().count());
+        Assertions.assertEquals(0, meterRegistry.get("singleflight.inflight").gauge().value());
+    }
+
+    @Test
+    @DisplayName("execute starts a new read once the previous one completed")
+    public void execute_StartsNewRead_WhenPreviousCompleted(){
+        result.tryEmitValue("anime");
+
+        StepVerifier.create(singleFlight.execute(1, this::read)).expectNext("anime").verifyComplete();
+        StepVerifier.create(singleFlight.execute(1, this::read)).expectNext("anime").verifyComplete();
+
+        Assertions.assertEquals(2, subscriptions.get());
+    }
+
+    @Test
+    @DisplayName("execute keeps the read running for the callers left and cancels it with the last one")
+    public void execute_CancelsRead_OnlyWhenEveryCallerCancelled(){
+        Disposable first = singleFlight.execute(1, this::read).subscribe();
+        Disposable second = singleFlight.execute(1, this::read).subscribe();
+
+        first.dispose();
+        Assertions.assertEquals(0, cancellations.get());
+        second.dispose();
+
+        Assertions.assertEquals(1, subscriptions.get());
+        Assertions.assertEquals(1, cancellations.get());
+        Assertions.assertEquals(0, meterRegistry.get("singleflight.inflight").gauge().value());
+    }
+
+    @Test
+    @DisplayName("execute delivers an error to every caller and the next call reads again")
+    public void execute_RetriesRead_WhenSharedReadFailed(){
+        StepVerifier first = StepVerifier.create(singleFlight.execute(1, this::read)).expectError(IllegalStateException.class).verifyLater();
+        StepVerifier second = StepVerifier.create(singleFlight.execute(1, this::read)).expectError(IllegalStateException.class).verifyLater();
+
+        result.tryEmitError(new IllegalStateException("connection closed"));
+
+        first.verify(Duration.ofSeconds(5));
+        second.verify(Duration.ofSeconds(5));
+        StepVerifier.create(singleFlight.execute(1, () -> Mono.just("anime"))).expectNext("anime").verifyComplete();
+    }
+
+    @Test
+    @DisplayName("forget makes later calls start a new read while earlier ones keep the old one")
+    public void forget_StartsNewRead_WhenReadIsInFlight(){
+        StepVerifier first = StepVerifier.create(singleFlight.execute(1, this::read)).expectNext("old").expectComplete().verifyLater();
+
+        singleFlight.forget(1);
+
+        StepVerifier.create(singleFlight.execute(1, () -> Mono.just("new"))).expectNext("new").verifyComplete();
+        result.tryEmitValue("old");
+        first.verify(Duration.ofSeconds(5));
+        Assertions.assertEquals(2, meterRegistry.get("singleflight.calls").tag("result", "executed").counter().count());
+    }
+
+    private Mono<String> read(){
+        return result.asMono()
+                .doOnSubscribe(subscription -> subscriptions.incrementAndGet())
+                .doOnCancel(cancellations::incrementAndGet);
+    }
+}
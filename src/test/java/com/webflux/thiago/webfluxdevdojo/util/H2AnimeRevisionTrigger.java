@@ -0,0 +1,44 @@
+package com.webflux.thiago.webfluxdevdojo.util;
+
+import org.h2.api.Trigger;
+import org.h2.engine.SessionInterface;
+import org.h2.jdbc.JdbcConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * H2 port of the anime_revision_bump triggers from V2, registered by db/h2/schema.sql for each
+ * changed row. Bumps the slot of the writing session and runs in it, so the bump commits or rolls
+ * back with the rows.
+ */
+public class H2AnimeRevisionTrigger implements Trigger {
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                     boolean before, int type) {
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        // in auto-commit the nested update would try to commit, which H2 refuses inside a trigger;
+        // the writing statement commits both afterwards
+        SessionInterface session = conn.unwrap(JdbcConnection.class).getSession();
+        boolean autoCommit = session.getAutoCommit();
+        session.setAutoCommit(false);
+        try (PreparedStatement bump = conn.prepareStatement("UPDATE anime_revision SET revision = revision + 1 WHERE id = MOD(SESSION_ID(), 64)")) {
+            bump.executeUpdate();
+        } finally {
+            session.setAutoCommit(autoCommit);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void remove() {
+    }
+}
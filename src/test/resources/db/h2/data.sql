@@ -0,0 +1,8 @@
+-- password for every user: devdojo
+MERGE INTO application_user (name, username, password, authorities) KEY (username)
+VALUES ('Thiago', 'thiago', '{bcrypt}$2a$10$.lN07bvzRkz734M/g60hj.ZecO37ApI0v9ya1rQBDYpuE3XdMzoUu', 'ROLE_USER,ROLE_ADMIN'),
+       ('Regular user', 'user', '{bcrypt}$2a$10$.lN07bvzRkz734M/g60hj.ZecO37ApI0v9ya1rQBDYpuE3XdMzoUu', 'ROLE_USER');
+
+INSERT INTO anime (name)
+SELECT name FROM (VALUES ('Naruto'), ('One Piece'), ('Fullmetal Alchemist')) seed(name)
+WHERE NOT EXISTS (SELECT 1 FROM anime);